@@ -0,0 +1,24 @@
+package Benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * BST 有序符号表的基准测试：随机顺序插入，树高为 O(log n)，测量方法见 AbstractBSTBenchmark
+ */
+public class BSTBenchmark extends AbstractBSTBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"UNIFORM", "ZIPFIAN"})
+    public KeyDistribution distribution;
+
+    @Override
+    protected int size(){
+        return size;
+    }
+
+    @Override
+    protected KeyDistribution distribution(){
+        return distribution;
+    }
+}
@@ -0,0 +1,22 @@
+package Benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * BST 在 SEQUENTIAL 分布下的基准测试：按顺序插入，树退化为链表，每次操作 O(n)，
+ * 建树 O(n^2)（100K 时约 5*10^9 次比较），所以规模上限为 100K
+ */
+public class BSTSequentialBenchmark extends AbstractBSTBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Override
+    protected int size(){
+        return size;
+    }
+
+    @Override
+    protected KeyDistribution distribution(){
+        return KeyDistribution.SEQUENTIAL;
+    }
+}
@@ -0,0 +1,102 @@
+package Benchmark;
+
+import AVL.AVLTree;
+import AVL.ConcurrentAVLTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 并发AVL树的基准测试：12个读线程 get，4个写线程 put/delete，共16个线程，键在 [0, size) 中均匀分布，预先放入一半的键
+ *
+ * impl:
+ *   LOCKED     : 一把全局锁保护的 AVLTree（基线）
+ *   OPTIMISTIC : ConcurrentAVLTree，查找不加锁，修改只锁住少数几个结点
+ * 线程数用 -tg 调整，例如 -tg 14,2 为14个读线程、2个写线程
+ */
+@State(Scope.Group)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class ConcurrentAVLBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"LOCKED", "OPTIMISTIC"})
+    public String impl;
+
+    private Table table;
+
+    private interface Table {
+        Integer get(Integer key);
+        void put(Integer key, Integer val);
+        void delete(Integer key);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        if ("LOCKED".equals(impl)){
+            final AVLTree<Integer, Integer> st = new AVLTree<>();
+            table = new Table() {
+                public synchronized Integer get(Integer key){
+                    return st.get(key);
+                }
+
+                public synchronized void put(Integer key, Integer val){
+                    st.put(key, val);
+                }
+
+                public synchronized void delete(Integer key){
+                    st.delete(key);
+                }
+            };
+        }else {
+            final ConcurrentAVLTree<Integer, Integer> st = new ConcurrentAVLTree<>();
+            table = new Table() {
+                public Integer get(Integer key){
+                    return st.get(key);
+                }
+
+                public void put(Integer key, Integer val){
+                    st.put(key, val);
+                }
+
+                public void delete(Integer key){
+                    st.delete(key);
+                }
+            };
+        }
+        for (int k : KeyDistribution.UNIFORM.insertOrder(size, 42)) {
+            if ((k & 1) == 0){
+                table.put(k, k);
+            }
+        }
+    }
+
+    private Integer randomKey(){
+        return ThreadLocalRandom.current().nextInt(size);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(12)
+    public Integer get(){
+        return table.get(randomKey());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public Integer putOrDelete(){
+        Integer k = randomKey();
+        if (ThreadLocalRandom.current().nextBoolean()){
+            table.put(k, k);
+        }else {
+            table.delete(k);
+        }
+        return k;
+    }
+}
@@ -0,0 +1,83 @@
+package Benchmark;
+
+import PriorityQueue.ConcurrentMaxPQ;
+import PriorityQueue.MaxPQ;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多线程优先队列的基准测试：生产者线程 insert，消费者线程 delMax，预先放入size个元素
+ *
+ * impl:
+ *   LOCKED  : 一把全局锁保护的 MaxPQ（改造前的做法，作为基线）
+ *   RELAXED : ConcurrentMaxPQ 的 RELAXED 模式
+ *   STRICT  : ConcurrentMaxPQ 的 STRICT 模式
+ * 线程数用 -tg 调整，例如 -tg 8,8 为8个生产者、8个消费者
+ */
+@State(Scope.Group)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class ConcurrentPQBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"LOCKED", "RELAXED", "STRICT"})
+    public String impl;
+
+    private Queue queue;
+
+    private interface Queue {
+        void insert(Integer v);
+        Integer delMax();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp(){
+        if ("LOCKED".equals(impl)){
+            final MaxPQ<Integer> pq = new MaxPQ<>(size);
+            queue = new Queue() {
+                public synchronized void insert(Integer v){
+                    pq.insert(v);
+                }
+
+                public synchronized Integer delMax(){
+                    return pq.isEmpty() ? null : pq.delMax();
+                }
+            };
+        }else {
+            final ConcurrentMaxPQ<Integer> pq = new ConcurrentMaxPQ<>(ConcurrentMaxPQ.Ordering.valueOf(impl));
+            queue = new Queue() {
+                public void insert(Integer v){
+                    pq.insert(v);
+                }
+
+                public Integer delMax(){
+                    return pq.delMax();
+                }
+            };
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < size; i++) {
+            queue.insert(random.nextInt());
+        }
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public void insert(){
+        queue.insert(ThreadLocalRandom.current().nextInt());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public Integer delMax(){
+        return queue.delMax();
+    }
+}
@@ -0,0 +1,119 @@
+package Benchmark;
+
+import BST.BST;
+import SkipList.ConcurrentSkipListST;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 并发有序符号表的基准测试：读线程 get/floor，写线程 put/delete，键在 [0, size) 中均匀分布，预先放入一半的键
+ *
+ * impl:
+ *   LOCKED   : 一把全局锁保护的 BST（改造前的做法，作为基线）
+ *   SKIPLIST : ConcurrentSkipListST
+ * 线程数用 -tg 调整，mixed 组有三个方法，需要给出三个数，例如 -tg 6,6,4 为 get、floor 各6个读线程（共12个）、putOrDelete 4个写线程
+ */
+@State(Scope.Group)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class ConcurrentSkipListBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"LOCKED", "SKIPLIST"})
+    public String impl;
+
+    private Table table;
+
+    private interface Table {
+        Integer get(Integer key);
+        Integer floor(Integer key);
+        void put(Integer key, Integer val);
+        void delete(Integer key);
+    }
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        if ("LOCKED".equals(impl)){
+            final BST<Integer, Integer> st = new BST<>();
+            table = new Table() {
+                public synchronized Integer get(Integer key){
+                    return st.get(key);
+                }
+
+                public synchronized Integer floor(Integer key){
+                    return st.floor(key);
+                }
+
+                public synchronized void put(Integer key, Integer val){
+                    st.put(key, val);
+                }
+
+                public synchronized void delete(Integer key){
+                    st.delete(key);
+                }
+            };
+        }else {
+            final ConcurrentSkipListST<Integer, Integer> st = new ConcurrentSkipListST<>();
+            table = new Table() {
+                public Integer get(Integer key){
+                    return st.get(key);
+                }
+
+                public Integer floor(Integer key){
+                    return st.floor(key);
+                }
+
+                public void put(Integer key, Integer val){
+                    st.put(key, val);
+                }
+
+                public void delete(Integer key){
+                    st.delete(key);
+                }
+            };
+        }
+        // 随机顺序插入，BST不会退化
+        for (int k : KeyDistribution.UNIFORM.insertOrder(size, 42)) {
+            if ((k & 1) == 0){
+                table.put(k, k);
+            }
+        }
+    }
+
+    private Integer randomKey(){
+        return ThreadLocalRandom.current().nextInt(size);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public Integer get(){
+        return table.get(randomKey());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public Integer floor(){
+        return table.floor(randomKey());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public Integer putOrDelete(){
+        Integer k = randomKey();
+        if (ThreadLocalRandom.current().nextBoolean()){
+            table.put(k, k);
+        }else {
+            table.delete(k);
+        }
+        return k;
+    }
+}
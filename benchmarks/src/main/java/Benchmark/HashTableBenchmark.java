@@ -0,0 +1,103 @@
+package Benchmark;
+
+import HashTable.HashTable;
+import HashTable.IntHashTable;
+import HashTable.OpenHashTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各哈希表实现的基准测试，通过 impl 参数选择实现，每个fork中只会加载一种实现
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class HashTableBenchmark {
+    private static final int ACCESS_COUNT = 1 << 20;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"UNIFORM", "SEQUENTIAL", "ZIPFIAN"})
+    public KeyDistribution distribution;
+
+    @Param({"HashTable", "OpenHashTable", "IntHashTable"})
+    public String impl;
+
+    interface Table {
+        void add(int key, Integer value);
+        Integer get(int key);
+        Integer remove(int key);
+    }
+
+    private Table table;
+    private int[] keys;
+    private Integer[] boxedKeys;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        // boxed[k] == k，预先装箱避免把装箱开销算进被测结构
+        final Integer[] boxed = new Integer[size];
+        for (int k = 0; k < size; k++) {
+            boxed[k] = k;
+        }
+        boxedKeys = boxed;
+
+        if ("HashTable".equals(impl)){
+            final HashTable<Integer, Integer> t = new HashTable<>();
+            table = new Table() {
+                public void add(int key, Integer value) { t.add(boxed[key], value); }
+                public Integer get(int key) { return t.get(boxed[key]); }
+                public Integer remove(int key) { return t.remove(boxed[key]); }
+            };
+        }else if ("OpenHashTable".equals(impl)){
+            final OpenHashTable<Integer, Integer> t = new OpenHashTable<>();
+            table = new Table() {
+                public void add(int key, Integer value) { t.add(boxed[key], value); }
+                public Integer get(int key) { return t.get(boxed[key]); }
+                public Integer remove(int key) { return t.remove(boxed[key]); }
+            };
+        }else {
+            final IntHashTable<Integer> t = new IntHashTable<>();
+            table = new Table() {
+                public void add(int key, Integer value) { t.add(key, value); }
+                public Integer get(int key) { return t.get(key); }
+                public Integer remove(int key) { return t.remove(key); }
+            };
+        }
+
+        for (int k : distribution.insertOrder(size, 42)) {
+            table.add(k, boxedKeys[k]);
+        }
+        keys = distribution.accessPattern(size, ACCESS_COUNT, 7);
+    }
+
+    private int next(){
+        return keys[cursor++ & (ACCESS_COUNT - 1)];
+    }
+
+    @Benchmark
+    public Integer get(){
+        return table.get(next());
+    }
+
+    @Benchmark
+    public int add(){
+        int k = next();
+        table.add(k, boxedKeys[k]);
+        return k;
+    }
+
+    @Benchmark
+    public Integer removeAndAdd(){
+        int k = next();
+        Integer v = table.remove(k);
+        table.add(k, boxedKeys[k]);
+        return v;
+    }
+}
@@ -0,0 +1,69 @@
+package Benchmark;
+
+import PriorityQueue.DaryMaxPQ;
+import PriorityQueue.MaxPQ;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 二叉堆 MaxPQ 与 d叉堆 DaryMaxPQ(d = 2, 4, 8) 的对比：预先放入size个元素，每次操作插入一个元素再删除堆顶
+ *
+ * 单独测 insert 或 delMax 都会让堆的大小变化，所以只测二者的组合；
+ * 配合 -prof perfnorm 可以看到每次操作的缓存未命中数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class HeapArityBenchmark {
+    private static final int ACCESS_COUNT = 1 << 20;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"UNIFORM", "SEQUENTIAL", "ZIPFIAN"})
+    public KeyDistribution distribution;
+
+    // binary 为原有的 MaxPQ，其余为对应叉数的 DaryMaxPQ
+    @Param({"binary", "2", "4", "8"})
+    public String arity;
+
+    interface Heap {
+        void insert(Integer v);
+        Integer delMax();
+    }
+
+    private Heap heap;
+    private Integer[] keys;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        if ("binary".equals(arity)){
+            final MaxPQ<Integer> pq = new MaxPQ<>(size + 1);
+            heap = new Heap() {
+                public void insert(Integer v) { pq.insert(v); }
+                public Integer delMax() { return pq.delMax(); }
+            };
+        }else {
+            final DaryMaxPQ<Integer> pq = new DaryMaxPQ<>(Integer.parseInt(arity), size + 1);
+            heap = new Heap() {
+                public void insert(Integer v) { pq.insert(v); }
+                public Integer delMax() { return pq.delMax(); }
+            };
+        }
+        for (Integer k : KeyDistribution.boxed(distribution.insertOrder(size, 42))) {
+            heap.insert(k);
+        }
+        keys = KeyDistribution.boxed(distribution.accessPattern(size, ACCESS_COUNT, 7));
+    }
+
+    @Benchmark
+    public Integer insertDelMax(){
+        heap.insert(keys[cursor++ & (ACCESS_COUNT - 1)]);
+        return heap.delMax();
+    }
+}
@@ -0,0 +1,108 @@
+package Benchmark;
+
+import java.util.Random;
+
+/**
+ * 基准测试使用的键分布，键空间为 [0, n)
+ *
+ * (1) UNIFORM: 随机顺序插入，均匀随机访问
+ * (2) SEQUENTIAL: 按键的大小顺序插入，按顺序循环访问（BST在此分布下退化为链表）
+ * (3) ZIPFIAN: 随机顺序插入，按 Zipf(0.99) 分布访问，少数热点键占据大部分访问；
+ *              热点键经过随机置换后分散在整个键空间中
+ */
+public enum KeyDistribution {
+    UNIFORM, SEQUENTIAL, ZIPFIAN;
+
+    private static final double THETA = 0.99;
+
+    // 插入顺序
+    public int[] insertOrder(int n, long seed){
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = i;
+        }
+        if (this != SEQUENTIAL){
+            shuffle(keys, new Random(seed));
+        }
+        return keys;
+    }
+
+    // 访问序列：count个[0, n)中的键，count需为2的幂，方便用 & 循环取
+    public int[] accessPattern(int n, int count, long seed){
+        Random random = new Random(seed);
+        int[] keys = new int[count];
+        switch (this){
+            case SEQUENTIAL:
+                for (int i = 0; i < count; i++) {
+                    keys[i] = i % n;
+                }
+                break;
+            case UNIFORM:
+                for (int i = 0; i < count; i++) {
+                    keys[i] = random.nextInt(n);
+                }
+                break;
+            case ZIPFIAN:
+                int[] permutation = insertOrder(n, seed + 1);
+                Zipfian zipf = new Zipfian(n, THETA);
+                for (int i = 0; i < count; i++) {
+                    keys[i] = permutation[zipf.next(random)];
+                }
+                break;
+        }
+        return keys;
+    }
+
+    private static void shuffle(int[] a, Random random){
+        for (int i = a.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+
+    public static Integer[] boxed(int[] a){
+        Integer[] b = new Integer[a.length];
+        for (int i = 0; i < a.length; i++) {
+            b[i] = a[i];
+        }
+        return b;
+    }
+
+    // Gray et al. "Quickly Generating Billion-Record Synthetic Databases" 中的Zipf生成算法（YCSB同款）
+    private static class Zipfian {
+        private final int n;
+        private final double theta, alpha, zetan, eta;
+
+        Zipfian(int n, double theta){
+            this.n = n;
+            this.theta = theta;
+            this.zetan = zeta(n, theta);
+            double zeta2 = zeta(2, theta);
+            this.alpha = 1.0 / (1.0 - theta);
+            this.eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta2 / zetan);
+        }
+
+        private static double zeta(int n, double theta){
+            double sum = 0;
+            for (int i = 1; i <= n; i++) {
+                sum += 1 / Math.pow(i, theta);
+            }
+            return sum;
+        }
+
+        int next(Random random){
+            double u = random.nextDouble();
+            double uz = u * zetan;
+            if (uz < 1.0){
+                return 0;
+            }
+            if (uz < 1.0 + Math.pow(0.5, theta)){
+                return 1;
+            }
+            int r = (int) (n * Math.pow(eta * u - eta + 1, alpha));
+            return Math.min(r, n - 1);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package Benchmark;
+
+import PriorityQueue.MaxPQ;
+import PriorityQueue.MinPQ;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MaxPQ / MinPQ 的基准测试：预先放入size个元素，每次操作插入一个元素再删除堆顶，堆的大小保持不变
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class PriorityQueueBenchmark {
+    private static final int ACCESS_COUNT = 1 << 20;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"UNIFORM", "SEQUENTIAL", "ZIPFIAN"})
+    public KeyDistribution distribution;
+
+    private MaxPQ<Integer> maxpq;
+    private MinPQ<Integer> minpq;
+    private Integer[] keys;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        maxpq = new MaxPQ<>(size + 1);
+        minpq = new MinPQ<>(size + 1);
+        for (Integer k : KeyDistribution.boxed(distribution.insertOrder(size, 42))) {
+            maxpq.insert(k);
+            minpq.insert(k);
+        }
+        keys = KeyDistribution.boxed(distribution.accessPattern(size, ACCESS_COUNT, 7));
+    }
+
+    private Integer next(){
+        return keys[cursor++ & (ACCESS_COUNT - 1)];
+    }
+
+    @Benchmark
+    public Integer maxPQInsertDelMax(){
+        maxpq.insert(next());
+        return maxpq.delMax();
+    }
+
+    @Benchmark
+    public Integer minPQInsertDelMin(){
+        minpq.insert(next());
+        return minpq.delMin();
+    }
+}
@@ -0,0 +1,92 @@
+package Benchmark;
+
+import RBTree.RBTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RBTree（左倾红黑树）的基准测试，键的布局与 BSTBenchmark 相同，便于直接对比
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class RBTreeBenchmark {
+    private static final int ACCESS_COUNT = 1 << 20;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"UNIFORM", "SEQUENTIAL", "ZIPFIAN"})
+    public KeyDistribution distribution;
+
+    private RBTree<Integer, Integer> st;
+    private Integer[] hits;       // 树中存在的键
+    private Integer[] misses;     // 树中不存在的键（奇数）
+    private int[] ranks;          // select的参数
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        st = new RBTree<>();
+        for (int k : distribution.insertOrder(size, 42)) {
+            st.put(2 * k, k);
+        }
+
+        int[] access = distribution.accessPattern(size, ACCESS_COUNT, 7);
+        hits = new Integer[ACCESS_COUNT];
+        misses = new Integer[ACCESS_COUNT];
+        ranks = access;
+        for (int i = 0; i < ACCESS_COUNT; i++) {
+            hits[i] = 2 * access[i];
+            misses[i] = 2 * access[i] + 1;
+        }
+    }
+
+    private int next(){
+        return cursor++ & (ACCESS_COUNT - 1);
+    }
+
+    @Benchmark
+    public Integer get(){
+        return st.get(hits[next()]);
+    }
+
+    @Benchmark
+    public Integer put(){
+        Integer k = hits[next()];
+        st.put(k, k);
+        return k;
+    }
+
+    @Benchmark
+    public Integer floor(){
+        return st.floor(misses[next()]);
+    }
+
+    @Benchmark
+    public Integer ceiling(){
+        return st.ceiling(misses[next()]);
+    }
+
+    @Benchmark
+    public int rank(){
+        return st.rank(misses[next()]);
+    }
+
+    @Benchmark
+    public Integer select(){
+        return st.select(ranks[next()]);
+    }
+
+    @Benchmark
+    public Integer deleteAndPut(){
+        Integer k = hits[next()];
+        st.delete(k);
+        st.put(k, k);
+        return k;
+    }
+}
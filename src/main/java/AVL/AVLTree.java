@@ -1,6 +1,22 @@
 package AVL;
 
+import Snapshot.Codec;
+import Snapshot.SnapshotFile;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * 平衡因子BF: 二叉树上结点的左子树深度减去右子树深度的值
@@ -15,22 +31,76 @@ public class AVLTree<Key extends Comparable<Key>, Value> {
     // 二叉查找树的根结点
     private Node root;
 
-    // 私有类：表示树上结点的数据结构
-    private class Node{
+    // 统计监听器：为null时不做任何统计，热路径上只多一次判空
+    private AVLTreeListener listener;
+
+    // 私有类：表示树上结点的数据结构；实现Map.Entry，范围迭代entries时直接返回结点，不另外创建对象
+    private class Node implements Map.Entry<Key, Value>{
         private Key key;              // 键
         private Value val;            // 值
         private Node left, right;     // 指向子树的链接
 
         private int height;           // 结点的高度
+        private int N;                // 以该结点为根的子树的结点总数，用于rank、select
 
         // 结点构造函数
         public Node(Key key, Value val){
             this.key = key;
             this.val = val;
             this.height = 1;           // 新添加的元素一定为叶子结点，故其高度为1
+            this.N = 1;
+        }
+
+        @Override
+        public Key getKey(){
+            return key;
+        }
+
+        @Override
+        public Value getValue(){
+            return val;
+        }
+
+        @Override
+        public Value setValue(Value val){
+            Value old = this.val;
+            this.val = val;
+            return old;
+        }
+    }
+
+    public void setListener(AVLTreeListener listener){
+        this.listener = listener;
+    }
+
+    private void rotated(AVLTreeListener.Rotation rotation){
+        if (listener != null){
+            listener.onRotation(rotation);
         }
     }
 
+    // 树的高度，空树为0
+    public int height(){
+        return getHeight(root);
+    }
+
+    public int size(){
+        return size(root);
+    }
+    private int size(Node x){
+        return (x == null) ? 0 : x.N;
+    }
+
+    public boolean isEmpty(){
+        return root == null;
+    }
+
+    // 由孩子重新计算结点的高度和结点计数
+    private void update(Node x){
+        x.height = 1 + Math.max(getHeight(x.left), getHeight(x.right));
+        x.N = 1 + size(x.left) + size(x.right);
+    }
+
     // 判断某棵树是否是二叉搜索树：中序遍历的结果是有序的
     public boolean isBST(){
         ArrayList<Key> keys = new ArrayList<>();
@@ -84,10 +154,10 @@ public class AVLTree<Key extends Comparable<Key>, Value> {
         x.right = y;
         y.left = T3;
 
-        // 更新height，只有x和y的高度有可能改变了
-        // 先更新y，再更新x，因为x的高度值计算依赖其孩子y的高度
-        y.height = 1 + Math.max(getHeight(y.left), getHeight(y.right));
-        x.height = 1 + Math.max(getHeight(x.left), getHeight(x.right));
+        // 更新height和N，只有x和y的有可能改变了
+        // 先更新y，再更新x，因为x的值计算依赖其孩子y
+        update(y);
+        update(x);
 
         return x;
     }
@@ -108,10 +178,10 @@ public class AVLTree<Key extends Comparable<Key>, Value> {
         x.left = y;
         y.right = T2;
 
-        // 更新height，只有x和y的高度有可能改变了
-        // 先更新y，再更新x，因为x的高度值计算依赖其孩子y的高度
-        y.height = 1 + Math.max(getHeight(y.left), getHeight(y.right));
-        x.height = 1 + Math.max(getHeight(x.left), getHeight(x.right));
+        // 更新height和N，只有x和y的有可能改变了
+        // 先更新y，再更新x，因为x的值计算依赖其孩子y
+        update(y);
+        update(x);
 
         return x;
     }
@@ -127,16 +197,25 @@ public class AVLTree<Key extends Comparable<Key>, Value> {
         return (x == null) ? 0 : getHeight(x.left) - getHeight(x.right);
     }
 
-    public Node min(Node x){
+    private Node min(Node x){
         if (x.left == null){
-            return null;
+            return x;
         }
         return min(x.left);
     }
 
-    // ***1. 查找Key=key元素的值
+    // ***1. 查找Key=key元素的值，不存在时返回null
     public Value get(Key key){
-        return get(root, key).val;
+        AVLTreeListener l = listener;
+        if (l == null){
+            Node x = get(root, key);
+            return x == null ? null : x.val;
+        }
+
+        long start = System.nanoTime();
+        Node x = get(root, key);
+        l.onOperation(AVLTreeListener.Operation.GET, System.nanoTime() - start, getHeight(root));
+        return x == null ? null : x.val;
     }
     private Node get(Node x, Key key){
         if (key == null){
@@ -158,7 +237,15 @@ public class AVLTree<Key extends Comparable<Key>, Value> {
 
     // ***2. 插入键值对key-val。如果已存在，仅更新值
     public void put(Key key, Value val){
+        AVLTreeListener l = listener;
+        if (l == null){
+            root = put(root, key, val);
+            return;
+        }
+
+        long start = System.nanoTime();
         root = put(root, key, val);
+        l.onOperation(AVLTreeListener.Operation.PUT, System.nanoTime() - start, getHeight(root));
     }
     private Node put(Node x, Key key, Value val){
         if (key == null) throw new IllegalArgumentException("calls put() with a null key");
@@ -178,32 +265,31 @@ public class AVLTree<Key extends Comparable<Key>, Value> {
 
         // 此时结点已经插入完毕了
 
-        // 插入结点后，需要更新高度
-        x.height = 1 + Math.max(getHeight(x.left), getHeight(x.right));
+        // 插入结点后，需要更新高度和结点计数
+        update(x);
 
         // 计算插入新结点后的平衡因子
         int balanceFactor =  getBalanceFactor(x);
 
         // 当平衡因子的绝对值 > 1时，该树此时不为平衡二叉树，需要做处理，即重平衡
-        if (Math.abs(balanceFactor) > 1){
-            System.out.println("x = " + x.key + "  " + x.val + "  " + "unbalanced! 平衡因子 = " + balanceFactor);
-        }
-
         // 平衡维护，分四种情况
         // 1. 插入的元素在不平衡的结点的左侧的左侧：LL
         if (balanceFactor > 1 && getBalanceFactor(x.left) >= 0){
             // 将平衡维护后的新跟结点返回到上一层递归，继续处理其上层的结点
+            rotated(AVLTreeListener.Rotation.LL);
             return rightRotate(x);
         }
 
         // 2. 插入的元素在不平衡的结点的右侧的右侧：RR
         if (balanceFactor < -1 && getBalanceFactor(x.right) <= 0){
+            rotated(AVLTreeListener.Rotation.RR);
             return leftRotate(x);
         }
 
         // 3. 插入的元素在不平衡的结点的左侧的右侧：LR
         // 先对 y的左孩子 进行左旋转，就变成了LL的情形，再对 y 进行右旋转
         if (balanceFactor > 1 && getBalanceFactor(x.left) < 0){
+            rotated(AVLTreeListener.Rotation.LR);
             x.left = leftRotate(x.left);
             return rightRotate(x);
         }
@@ -211,6 +297,7 @@ public class AVLTree<Key extends Comparable<Key>, Value> {
         // 4. 插入的元素在不平衡的结点的右侧的左侧：RL
         // 先对 y的右孩子 进行右旋转，就变成了RR的情形，再对 y 进行左旋转
         if (balanceFactor < -1 && getBalanceFactor(x.right) > 0){
+            rotated(AVLTreeListener.Rotation.RL);
             x.right = rightRotate(x.right);
             return leftRotate(x);
         }
@@ -221,7 +308,16 @@ public class AVLTree<Key extends Comparable<Key>, Value> {
 
     // ***11. 删除键为key的元素
     public void delete(Key key){
+        if (key == null) throw new IllegalArgumentException("calls delete() with a null key");
+        AVLTreeListener l = listener;
+        if (l == null){
+            root = delete(root, key);
+            return;
+        }
+
+        long start = System.nanoTime();
         root = delete(root, key);
+        l.onOperation(AVLTreeListener.Operation.DELETE, System.nanoTime() - start, getHeight(root));
     }
     private Node delete(Node x, Key key){
         if (x == null){
@@ -259,32 +355,31 @@ public class AVLTree<Key extends Comparable<Key>, Value> {
 
         // 此时结点已经删除完毕了
 
-        // 插入结点后，需要更新高度
-        retNode.height = 1 + Math.max(getHeight(retNode.left), getHeight(retNode.right));
+        // 删除结点后，需要更新高度和结点计数
+        update(retNode);
 
         // 计算插入新结点后的平衡因子
         int balanceFactor =  getBalanceFactor(retNode);
 
         // 当平衡因子的绝对值 > 1时，该树此时不为平衡二叉树，需要做处理，即重平衡
-        if (Math.abs(balanceFactor) > 1){
-            System.out.println("retNode = " + retNode.key + "  " + retNode.val + "  " + "unbalanced! 平衡因子 = " + balanceFactor);
-        }
-
         // 平衡维护，分四种情况
         // 1. 插入的元素在不平衡的结点的左侧的左侧：LL
         if (balanceFactor > 1 && getBalanceFactor(retNode.left) >= 0){
             // 将平衡维护后的新跟结点返回到上一层递归，继续处理其上层的结点
+            rotated(AVLTreeListener.Rotation.LL);
             return rightRotate(retNode);
         }
 
         // 2. 插入的元素在不平衡的结点的右侧的右侧：RR
         if (balanceFactor < -1 && getBalanceFactor(retNode.right) <= 0){
+            rotated(AVLTreeListener.Rotation.RR);
             return leftRotate(retNode);
         }
 
         // 3. 插入的元素在不平衡的结点的左侧的右侧：LR
         // 先对 y的左孩子 进行左旋转，就变成了LL的情形，再对 y 进行右旋转
         if (balanceFactor > 1 && getBalanceFactor(retNode.left) < 0){
+            rotated(AVLTreeListener.Rotation.LR);
             retNode.left = leftRotate(retNode.left);
             return rightRotate(retNode);
         }
@@ -292,12 +387,709 @@ public class AVLTree<Key extends Comparable<Key>, Value> {
         // 4. 插入的元素在不平衡的结点的右侧的左侧：RL
         // 先对 y的右孩子 进行右旋转，就变成了RR的情形，再对 y 进行左旋转
         if (balanceFactor < -1 && getBalanceFactor(retNode.right) > 0){
-            x.right = rightRotate(retNode.right);
+            rotated(AVLTreeListener.Rotation.RL);
+            retNode.right = rightRotate(retNode.right);
             return leftRotate(retNode);
         }
         return retNode;
     }
 
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 有序符号表API：树高为O(logN)，均为O(logN)
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    public boolean contains(Key key){
+        return get(root, key) != null;
+    }
+
+    // ***3. 返回最小键
+    public Key min(){
+        if (root == null){
+            return null;
+        }
+        return min(root).key;
+    }
+
+    // 4. 返回最大键
+    public Key max(){
+        if (root == null){
+            return null;
+        }
+        Node x = root;
+        while (x.right != null){
+            x = x.right;
+        }
+        return x.key;
+    }
+
+    // ***5. 向下取整：小于等于key的最大键
+    public Key floor(Key key){
+        if (key == null) throw new IllegalArgumentException("calls floor() with a null key");
+        // 向右走之前记下当前结点：它是目前为止小于key的最大键
+        Node x = root, best = null;
+        while (x != null){
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0){
+                x = x.left;
+            }else if (cmp > 0){
+                best = x;
+                x = x.right;
+            }else {
+                return x.key;
+            }
+        }
+        return best == null ? null : best.key;
+    }
+
+    // 6. 向上取整：大于等于key的最小键
+    public Key ceiling(Key key){
+        if (key == null) throw new IllegalArgumentException("calls ceiling() with a null key");
+        Node x = root, best = null;
+        while (x != null){
+            int cmp = key.compareTo(x.key);
+            if (cmp > 0){
+                x = x.right;
+            }else if (cmp < 0){
+                best = x;
+                x = x.left;
+            }else {
+                return x.key;
+            }
+        }
+        return best == null ? null : best.key;
+    }
+
+    // ***7. 找到排名为k的键：即树中正好有k个小于它的键
+    public Key select(int k){
+        Node x = root;
+        while (x != null){
+            int t = size(x.left);
+            if (t == k){
+                return x.key;
+            }else if (t < k){
+                k = k - t - 1;
+                x = x.right;
+            }else {
+                x = x.left;
+            }
+        }
+        return null;
+    }
+
+    // ***8. 返回给定键的排名：树中小于key的键的数量，与select互逆
+    public int rank(Key key){
+        if (key == null) throw new IllegalArgumentException("calls rank() with a null key");
+        Node x = root;
+        int r = 0;
+        while (x != null){
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0){
+                x = x.left;
+            }else if (cmp > 0){
+                r += size(x.left) + 1;
+                x = x.right;
+            }else {
+                return r + size(x.left);
+            }
+        }
+        return r;
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 范围查询
+     * size(lo, hi) 由两次rank得到，O(logN)，不遍历区间内的结点
+     * keys/entries 返回惰性的迭代器：栈中只保存从根到当前结点的路径，每次next()才向后走一步，
+     * 区间外的子树不会被访问。分页时用 select(offset) 作为lo，不需要把整棵树复制出来
+     * 迭代过程中修改树，迭代结果是未定义的
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    // ***14. [lo, hi]之间的键的数量
+    public int size(Key lo, Key hi){
+        if (lo == null || hi == null) throw new IllegalArgumentException("calls size() with a null key");
+        if (lo.compareTo(hi) > 0){
+            return 0;
+        }
+        if (contains(hi)){
+            return rank(hi) - rank(lo) + 1;
+        }else {
+            return rank(hi) - rank(lo);
+        }
+    }
+
+    // ***15. 所有的键，从小到大
+    public Iterable<Key> keys(){
+        if (root == null){
+            return Collections.emptyList();
+        }
+        return keys(min(), max());
+    }
+
+    // [lo, hi]之间的键，从小到大
+    public Iterable<Key> keys(Key lo, Key hi){
+        checkRange(lo, hi);
+        return () -> new RangeIterator<Key>(lo, hi, false, false);
+    }
+
+    // [lo, hi]之间的键值对，从小到大
+    public Iterable<Map.Entry<Key, Value>> entries(Key lo, Key hi){
+        checkRange(lo, hi);
+        return () -> new RangeIterator<Map.Entry<Key, Value>>(lo, hi, false, true);
+    }
+
+    // [lo, hi]之间的键，从大到小
+    public Iterable<Key> descendingKeys(Key lo, Key hi){
+        checkRange(lo, hi);
+        return () -> new RangeIterator<Key>(lo, hi, true, false);
+    }
+
+    // [lo, hi]之间的键值对，从大到小
+    public Iterable<Map.Entry<Key, Value>> descendingEntries(Key lo, Key hi){
+        checkRange(lo, hi);
+        return () -> new RangeIterator<Map.Entry<Key, Value>>(lo, hi, true, true);
+    }
+
+    private void checkRange(Key lo, Key hi){
+        if (lo == null) throw new IllegalArgumentException("first argument to keys() is null");
+        if (hi == null) throw new IllegalArgumentException("second argument to keys() is null");
+    }
+
+    /**
+     * 中序遍历的迭代器（用栈模拟递归），descending为true时为反向中序遍历
+     * 正向：栈中为当前结点的左路径上不小于lo的结点，弹出的结点大于hi时结束
+     * 反向：栈中为当前结点的右路径上不大于hi的结点，弹出的结点小于lo时结束
+     * */
+    private class RangeIterator<T> implements Iterator<T> {
+        private final Key lo, hi;
+        private final boolean descending;
+        private final boolean entries;      // 返回结点（键值对）还是键
+        private final Deque<Node> stack = new ArrayDeque<>();
+        private Node next;
+
+        RangeIterator(Key lo, Key hi, boolean descending, boolean entries){
+            this.lo = lo;
+            this.hi = hi;
+            this.descending = descending;
+            this.entries = entries;
+            if (descending){
+                pushRight(root);
+            }else {
+                pushLeft(root);
+            }
+            advance();
+        }
+
+        private void pushLeft(Node x){
+            while (x != null){
+                if (x.key.compareTo(lo) < 0){
+                    x = x.right;
+                }else {
+                    stack.push(x);
+                    x = x.left;
+                }
+            }
+        }
+
+        private void pushRight(Node x){
+            while (x != null){
+                if (x.key.compareTo(hi) > 0){
+                    x = x.left;
+                }else {
+                    stack.push(x);
+                    x = x.right;
+                }
+            }
+        }
+
+        private void advance(){
+            next = null;
+            if (stack.isEmpty()){
+                return;
+            }
+            Node x = stack.pop();
+            if (descending){
+                if (x.key.compareTo(lo) < 0){
+                    stack.clear();
+                    return;
+                }
+                pushRight(x.left);
+            }else {
+                if (x.key.compareTo(hi) > 0){
+                    stack.clear();
+                    return;
+                }
+                pushLeft(x.right);
+            }
+            next = x;
+        }
+
+        @Override
+        public boolean hasNext(){
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next(){
+            if (next == null) throw new NoSuchElementException();
+            Node x = next;
+            advance();
+            return entries ? (T) x : (T) x.key;
+        }
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 批量构建：由有序的键值对直接构建完全平衡的树，O(n)，不需要逐个put
+     * 取中间元素为根，左半部分构建左子树，右半部分构建右子树，子树的高度height和结点计数N在构建时直接算出
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    // 并行构建时，元素个数少于该值的子树在当前线程中直接构建
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    // keys必须严格递增，vals[i]为keys[i]对应的值
+    public static <K extends Comparable<K>, V> AVLTree<K, V> fromSorted(K[] keys, V[] vals){
+        checkSorted(keys, vals);
+        AVLTree<K, V> st = new AVLTree<>();
+        st.root = st.build(keys, vals, 0, keys.length - 1);
+        return st;
+    }
+
+    // 与fromSorted相同，左右两半在ForkJoinPool中并行构建
+    public static <K extends Comparable<K>, V> AVLTree<K, V> fromSortedParallel(K[] keys, V[] vals){
+        checkSorted(keys, vals);
+        AVLTree<K, V> st = new AVLTree<>();
+        st.root = ForkJoinPool.commonPool().invoke(st.new BuildTask(keys, vals, 0, keys.length - 1));
+        return st;
+    }
+
+    // 从按键严格递增的迭代器构建
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<K>, V> AVLTree<K, V> bulkLoad(Iterator<Map.Entry<K, V>> entries){
+        ArrayList<K> keys = new ArrayList<>();
+        ArrayList<V> vals = new ArrayList<>();
+        while (entries.hasNext()){
+            Map.Entry<K, V> e = entries.next();
+            keys.add(e.getKey());
+            vals.add(e.getValue());
+        }
+        return fromSorted((K[]) keys.toArray(new Comparable[0]), (V[]) vals.toArray());
+    }
+
+    private static <K extends Comparable<K>, V> void checkSorted(K[] keys, V[] vals){
+        if (keys.length != vals.length){
+            throw new IllegalArgumentException("keys and vals have different lengths");
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null){
+                throw new IllegalArgumentException("null key at index " + i);
+            }
+            if (i > 0 && keys[i - 1].compareTo(keys[i]) >= 0){
+                throw new IllegalArgumentException("keys are not strictly increasing at index " + i);
+            }
+        }
+    }
+
+    // 由keys[lo..hi]构建子树，返回子树的根结点
+    private Node build(Key[] keys, Value[] vals, int lo, int hi){
+        if (lo > hi){
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+        Node x = new Node(keys[mid], vals[mid]);
+        x.left = build(keys, vals, lo, mid - 1);
+        x.right = build(keys, vals, mid + 1, hi);
+        update(x);
+        return x;
+    }
+
+    private class BuildTask extends RecursiveTask<Node> {
+        private static final long serialVersionUID = 1L;
+
+        private final Key[] keys;
+        private final Value[] vals;
+        private final int lo, hi;
+
+        BuildTask(Key[] keys, Value[] vals, int lo, int hi){
+            this.keys = keys;
+            this.vals = vals;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Node compute(){
+            if (hi - lo + 1 <= PARALLEL_THRESHOLD){
+                return build(keys, vals, lo, hi);
+            }
+            int mid = (lo + hi) >>> 1;
+            Node x = new Node(keys[mid], vals[mid]);
+            BuildTask left = new BuildTask(keys, vals, lo, mid - 1);
+            left.fork();
+            x.right = new BuildTask(keys, vals, mid + 1, hi).compute();
+            x.left = left.join();
+            update(x);
+            return x;
+        }
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 集合运算：基于join的并集、交集、差集和split
+     * join(l, k, r): l中的键都小于k，r中的键都大于k，将三者连接为一棵AVL树。
+     *   高度相差不超过1时k直接作为根；否则沿较高一棵树的右（左）边界向下，找到与较矮的树高度相近的子树，
+     *   在那里接上k和较矮的树，再沿途向上重平衡（最多一次双旋），O(|h(l) - h(r)|)
+     * split(t, k): 沿查找k的路径把t拆成小于k、等于k、大于k三部分，路径上拆下来的子树用join重新拼接，O(logN)
+     * 集合运算都是同一个模式：用a的根的键split b，两边分别递归，再用join（或join2）合并，
+     * 总代价为 O(m log(n/m + 1))，m <= n 为两棵树的大小。两边的递归访问的是不相交的结点，可以并行
+     * 运算会复用两棵树的结点，参数树在运算后被清空
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    private enum SetOp {
+        UNION, INTERSECT, DIFFERENCE
+    }
+
+    // split的结果：left中的键小于key，mid为键等于key的结点（不存在时为null），right中的键大于key
+    private class Split {
+        private Node left, mid, right;
+    }
+
+    // 并集：other中的键值对并入当前树，键相同时取other中的值
+    public void union(AVLTree<Key, Value> other){
+        setOp(SetOp.UNION, other);
+    }
+
+    // 交集：只保留同时在other中的键，值为当前树中的值
+    public void intersect(AVLTree<Key, Value> other){
+        setOp(SetOp.INTERSECT, other);
+    }
+
+    // 差集：删除在other中的键
+    public void difference(AVLTree<Key, Value> other){
+        setOp(SetOp.DIFFERENCE, other);
+    }
+
+    private void setOp(SetOp op, AVLTree<Key, Value> other){
+        if (other == null) throw new IllegalArgumentException("argument to " + op.name().toLowerCase() + "() is null");
+        if (other == this){
+            if (op == SetOp.DIFFERENCE){
+                root = null;
+            }
+            return;
+        }
+        Node b = other.root;
+        other.root = null;
+        root = ForkJoinPool.commonPool().invoke(new SetTask(op, root, b));
+    }
+
+    // 当前树保留小于key的键，返回由大于等于key的键组成的新树
+    public AVLTree<Key, Value> split(Key key){
+        if (key == null) throw new IllegalArgumentException("calls split() with a null key");
+        Split s = new Split();
+        split(root, key, s);
+        root = s.left;
+        AVLTree<Key, Value> st = new AVLTree<>();
+        st.root = s.mid == null ? s.right : join(null, s.mid, s.right);
+        return st;
+    }
+
+    // 以k为根连接l和r，要求 l < k < r
+    private Node join(Node l, Node k, Node r){
+        if (getHeight(l) > getHeight(r) + 1){
+            return joinRight(l, k, r);
+        }
+        if (getHeight(r) > getHeight(l) + 1){
+            return joinLeft(l, k, r);
+        }
+        k.left = l;
+        k.right = r;
+        update(k);
+        return k;
+    }
+
+    // l比r高：沿l的右边界向下
+    private Node joinRight(Node l, Node k, Node r){
+        Node c = l.right;
+        if (getHeight(c) <= getHeight(r) + 1){
+            k.left = c;
+            k.right = r;
+            update(k);
+            if (getHeight(k) <= getHeight(l.left) + 1){
+                l.right = k;
+                update(l);
+                return l;
+            }
+            // k比l的左子树高2：RL的情形
+            l.right = rightRotate(k);
+            update(l);
+            return leftRotate(l);
+        }
+        l.right = joinRight(c, k, r);
+        update(l);
+        if (getHeight(l.right) <= getHeight(l.left) + 1){
+            return l;
+        }
+        return leftRotate(l);
+    }
+
+    // r比l高：沿r的左边界向下，与joinRight对称
+    private Node joinLeft(Node l, Node k, Node r){
+        Node c = r.left;
+        if (getHeight(c) <= getHeight(l) + 1){
+            k.left = l;
+            k.right = c;
+            update(k);
+            if (getHeight(k) <= getHeight(r.right) + 1){
+                r.left = k;
+                update(r);
+                return r;
+            }
+            r.left = leftRotate(k);
+            update(r);
+            return rightRotate(r);
+        }
+        r.left = joinLeft(l, k, c);
+        update(r);
+        if (getHeight(r.left) <= getHeight(r.right) + 1){
+            return r;
+        }
+        return rightRotate(r);
+    }
+
+    // 连接l和r，要求 l < r：取出l中的最大结点作为join的根
+    private Node join2(Node l, Node r){
+        if (l == null){
+            return r;
+        }
+        if (r == null){
+            return l;
+        }
+        Split s = new Split();
+        splitLast(l, s);
+        return join(s.left, s.mid, r);
+    }
+
+    // 把x拆成最大结点（s.mid）和其余部分（s.left）
+    private void splitLast(Node x, Split s){
+        if (x.right == null){
+            s.left = x.left;
+            s.mid = x;
+            return;
+        }
+        Node l = x.left;
+        splitLast(x.right, s);
+        s.left = join(l, x, s.left);
+    }
+
+    private void split(Node x, Key key, Split s){
+        if (x == null){
+            s.left = s.mid = s.right = null;
+            return;
+        }
+        Node l = x.left, r = x.right;
+        int cmp = key.compareTo(x.key);
+        if (cmp == 0){
+            s.left = l;
+            s.mid = x;
+            s.right = r;
+            x.left = x.right = null;
+            update(x);
+        }else if (cmp < 0){
+            split(l, key, s);
+            s.right = join(s.right, x, r);
+        }else {
+            split(r, key, s);
+            s.left = join(l, x, s.left);
+        }
+    }
+
+    // 单线程的集合运算，a和b的结点都会被复用
+    private Node setOp(SetOp op, Node a, Node b){
+        if (a == null){
+            return op == SetOp.UNION ? b : null;
+        }
+        if (b == null){
+            return op == SetOp.INTERSECT ? null : a;
+        }
+        Node al = a.left, ar = a.right;
+        Split s = new Split();
+        split(b, a.key, s);
+        Node found = s.mid, bl = s.left, br = s.right;
+        Node l = setOp(op, al, bl);
+        Node r = setOp(op, ar, br);
+        return combine(op, a, found, l, r);
+    }
+
+    // a为a树的根，found为b树中与a键相同的结点（可能为null），l和r为左右两边递归的结果
+    private Node combine(SetOp op, Node a, Node found, Node l, Node r){
+        switch (op){
+            case UNION:
+                if (found != null){
+                    a.val = found.val;
+                }
+                return join(l, a, r);
+            case INTERSECT:
+                return found != null ? join(l, a, r) : join2(l, r);
+            default:
+                return found != null ? join2(l, r) : join(l, a, r);
+        }
+    }
+
+    private class SetTask extends RecursiveTask<Node> {
+        private static final long serialVersionUID = 1L;
+
+        private final SetOp op;
+        private final Node a, b;
+
+        SetTask(SetOp op, Node a, Node b){
+            this.op = op;
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        protected Node compute(){
+            if (a == null || b == null || size(a) + size(b) <= PARALLEL_THRESHOLD){
+                return setOp(op, a, b);
+            }
+            Node al = a.left, ar = a.right;
+            Split s = new Split();
+            split(b, a.key, s);
+            Node found = s.mid;
+            SetTask left = new SetTask(op, al, s.left);
+            left.fork();
+            Node r = new SetTask(op, ar, s.right).compute();
+            Node l = left.join();
+            return combine(op, a, found, l, r);
+        }
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 快照：前序写出每个结点及其高度height和结点计数N，恢复时按原样重建树的形状，O(n)且不做任何比较（格式见 Snapshot.SnapshotFile）
+     * 重启时用 load 代替逐个put，省去 n 次 O(logn) 的查找和旋转
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    public void save(Path file, Codec<Key> keyCodec, Codec<Value> valCodec) throws IOException{
+        SnapshotFile.write(file, SnapshotFile.TYPE_AVL, size(), out -> {
+            // 前序遍历：用栈模拟递归，先压右孩子再压左孩子
+            Deque<Node> stack = new ArrayDeque<>();
+            if (root != null){
+                stack.push(root);
+            }
+            while (!stack.isEmpty()){
+                Node x = stack.pop();
+                int flags = 0;
+                if (x.left != null) flags |= SnapshotFile.HAS_LEFT;
+                if (x.right != null) flags |= SnapshotFile.HAS_RIGHT;
+                out.writeByte(flags);
+                keyCodec.encode(x.key, out);
+                valCodec.encode(x.val, out);
+                out.writeByte(x.height);
+                out.writeInt(x.N);
+                if (x.right != null){
+                    stack.push(x.right);
+                }
+                if (x.left != null){
+                    stack.push(x.left);
+                }
+            }
+        });
+    }
+
+    public static <K extends Comparable<K>, V> AVLTree<K, V> load(Path file, Codec<K> keyCodec, Codec<V> valCodec) throws IOException{
+        ByteBuffer in = SnapshotFile.open(file, SnapshotFile.TYPE_AVL);
+        AVLTree<K, V> st = new AVLTree<>();
+        try {
+            st.root = st.restore(in, in.getInt(), keyCodec, valCodec);
+        }catch (BufferUnderflowException e){
+            throw new IOException("truncated or corrupt snapshot: " + file, e);
+        }
+        if (in.hasRemaining()){
+            throw new IOException("trailing bytes in snapshot: " + file);
+        }
+        return st;
+    }
+
+    // 按前序读出n个结点：栈中是还缺孩子的结点，pending记录它还缺哪些孩子，新结点挂在栈顶结点下面
+    private Node restore(ByteBuffer in, int n, Codec<Key> keyCodec, Codec<Value> valCodec) throws IOException{
+        ArrayList<Node> stack = new ArrayList<>();
+        ArrayList<Node> preorder = new ArrayList<>();
+        byte[] pending = new byte[64];
+        Node root = null;
+        for (int i = 0; i < n; i++) {
+            byte flags = in.get();
+            Node x = new Node(keyCodec.decode(in), valCodec.decode(in));
+            x.height = in.get();
+            x.N = in.getInt();
+            preorder.add(x);
+            if (root == null){
+                root = x;
+            }else if (stack.isEmpty()){
+                throw new IOException("corrupt snapshot: node " + i + " has no parent");
+            }else {
+                int t = stack.size() - 1;
+                if ((pending[t] & SnapshotFile.HAS_LEFT) != 0){
+                    stack.get(t).left = x;
+                    pending[t] &= ~SnapshotFile.HAS_LEFT;
+                }else {
+                    stack.get(t).right = x;
+                    pending[t] = 0;
+                }
+                if (pending[t] == 0){
+                    stack.remove(t);
+                }
+            }
+            if ((flags & (SnapshotFile.HAS_LEFT | SnapshotFile.HAS_RIGHT)) != 0){
+                if (stack.size() == pending.length){
+                    pending = Arrays.copyOf(pending, 2 * pending.length);
+                }
+                pending[stack.size()] = flags;
+                stack.add(x);
+            }
+        }
+        if (!stack.isEmpty() || (root != null && root.N != n)){
+            throw new IOException("corrupt snapshot: tree shape does not match size " + n);
+        }
+        verify(root, preorder);
+        return root;
+    }
+
+    // 逐个结点核对快照中的字段，否则写错或手工构造的快照会得到rank/select、平衡不对的树：
+    // 前序的逆序中孩子总在父结点之前，倒着检查 N、height 和平衡因子；再中序遍历检查键严格递增
+    private void verify(Node root, ArrayList<Node> preorder) throws IOException{
+        for (int i = preorder.size() - 1; i >= 0; i--) {
+            Node x = preorder.get(i);
+            if (x.N != 1 + size(x.left) + size(x.right)){
+                throw new IOException("corrupt snapshot: node " + i + " has N=" + x.N + ", expected " + (1 + size(x.left) + size(x.right)));
+            }
+            int h = 1 + Math.max(getHeight(x.left), getHeight(x.right));
+            if (x.height != h){
+                throw new IOException("corrupt snapshot: node " + i + " has height=" + x.height + ", expected " + h);
+            }
+            if (Math.abs(getHeight(x.left) - getHeight(x.right)) > 1){
+                throw new IOException("corrupt snapshot: node " + i + " is not balanced");
+            }
+        }
+
+        ArrayList<Node> stack = new ArrayList<>();
+        Node x = root;
+        Key prev = null;
+        while (x != null || !stack.isEmpty()){
+            while (x != null){
+                stack.add(x);
+                x = x.left;
+            }
+            x = stack.remove(stack.size() - 1);
+            if (prev != null && prev.compareTo(x.key) >= 0){
+                throw new IOException("corrupt snapshot: keys out of order at " + x.key);
+            }
+            prev = x.key;
+            x = x.right;
+        }
+    }
+
     /**
      * 不平衡的4中情况：
      * 1. 对x的左儿子的左子树进行一次插入
@@ -310,7 +1102,15 @@ public class AVLTree<Key extends Comparable<Key>, Value> {
     // put的另一种写法
     // ***2. 插入键值对key-val。如果已存在，仅更新值
     public void insert(Key key, Value val){
+        AVLTreeListener l = listener;
+        if (l == null){
+            root = insert(root, key, val);
+            return;
+        }
+
+        long start = System.nanoTime();
         root = insert(root, key, val);
+        l.onOperation(AVLTreeListener.Operation.PUT, System.nanoTime() - start, getHeight(root));
     }
     private Node insert(Node x, Key key, Value val){
         if (key == null) throw new IllegalArgumentException("calls put() with a null key");
@@ -326,7 +1126,10 @@ public class AVLTree<Key extends Comparable<Key>, Value> {
             if (getHeight(x.left) - getHeight(x.right) == 2){
                 if (getBalanceFactor(x.left) < 0){
                     // 2. 对x的左儿子的右子树进行一次插入
+                    rotated(AVLTreeListener.Rotation.LR);
                     x.left = leftRotate(x.left);
+                }else {
+                    rotated(AVLTreeListener.Rotation.LL);
                 }
                 // 1. 对x的左儿子的左子树进行一次插入
                 x = rightRotate(x);
@@ -338,7 +1141,10 @@ public class AVLTree<Key extends Comparable<Key>, Value> {
             if (getHeight(x.right) - getHeight(x.left) == 2){
                 if (getBalanceFactor(x.right) > 0){
                     // 4. 对x的右儿子的左子树进行一次插入
+                    rotated(AVLTreeListener.Rotation.RL);
                     x.right = rightRotate(x.right);
+                }else {
+                    rotated(AVLTreeListener.Rotation.RR);
                 }
                 // 3. 对x的右儿子的右子树进行一次插入
                 x = leftRotate(x);
@@ -348,8 +1154,8 @@ public class AVLTree<Key extends Comparable<Key>, Value> {
             x.val = val;
         }
 
-        // 回溯前，更新高度
-        x.height = 1 + Math.max(getHeight(x.left), getHeight(x.right));
+        // 回溯前，更新高度和结点计数
+        update(x);
         return x;
     }
 }
\ No newline at end of file
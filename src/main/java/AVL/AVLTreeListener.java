@@ -0,0 +1,20 @@
+package AVL;
+
+/**
+ * AVLTree 的统计监听器，通过 AVLTree.setListener 注册，未注册时树不做任何统计（也不调用System.nanoTime）
+ *
+ * 回调在执行操作的线程中同步调用，实现需要足够轻量，例如只累加计数器，再由自己的指标系统定期读取
+ */
+public interface AVLTreeListener {
+
+    // 重平衡时的旋转类型，LR/RL为两次旋转，但只记一次
+    enum Rotation { LL, RR, LR, RL }
+
+    enum Operation { GET, PUT, DELETE }
+
+    // 发生一次重平衡
+    void onRotation(Rotation rotation);
+
+    // 一次操作完成：耗时（纳秒）以及操作后树的高度
+    void onOperation(Operation operation, long elapsedNanos, int height);
+}
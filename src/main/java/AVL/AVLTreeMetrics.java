@@ -0,0 +1,52 @@
+package AVL;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AVLTreeListener 的默认实现：按旋转类型计数，按操作类型累计次数与耗时，并记录最近一次的树高
+ *
+ * 计数器使用 LongAdder，可以在另一个线程中随时读取，不影响写入
+ */
+public class AVLTreeMetrics implements AVLTreeListener {
+    private final LongAdder[] rotations = newAdders(Rotation.values().length);
+    private final LongAdder[] counts = newAdders(Operation.values().length);
+    private final LongAdder[] nanos = newAdders(Operation.values().length);
+    private volatile int height;
+
+    private static LongAdder[] newAdders(int n){
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    @Override
+    public void onRotation(Rotation rotation){
+        rotations[rotation.ordinal()].increment();
+    }
+
+    @Override
+    public void onOperation(Operation operation, long elapsedNanos, int height){
+        counts[operation.ordinal()].increment();
+        nanos[operation.ordinal()].add(elapsedNanos);
+        this.height = height;
+    }
+
+    public long rotations(Rotation rotation){
+        return rotations[rotation.ordinal()].sum();
+    }
+
+    public long count(Operation operation){
+        return counts[operation.ordinal()].sum();
+    }
+
+    public long totalNanos(Operation operation){
+        return nanos[operation.ordinal()].sum();
+    }
+
+    // 树高：gauge，只保留最近一次操作后的值
+    public int height(){
+        return height;
+    }
+}
@@ -0,0 +1,785 @@
+package AVL;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 线程安全的AVL树，采用 Bronson 等人的乐观并发控制
+ * (N. G. Bronson, J. Casper, H. Chafi, K. Olukotun. A Practical Concurrent Binary Search Tree. PPoPP 2010)
+ *
+ * (1) 版本号：每个结点有一个version。旋转会使某个结点"下沉"，它的子树中的键范围缩小（shrink），
+ *     旋转前后把它的version标记为SHRINKING并在结束时加一。读者从父结点走到孩子时先记下孩子的version，
+ *     之后再确认父结点的version没有变化（hand-over-hand 验证），从而知道走过的路径仍然有效，否则回到上一层重试。
+ *     查找不加任何锁
+ * (2) 加锁：只有修改链接或高度的线程才对结点加锁（synchronized），插入只锁新叶子的父结点，
+ *     旋转锁住父结点、被旋转的结点及其孩子，锁的顺序总是从上到下，不会死锁
+ * (3) 部分外部树（partially external）：删除有两个孩子的结点时只把它的值置为null，结点保留下来作为路由结点；
+ *     之后该结点少于两个孩子时在重平衡过程中被摘除。删除不需要找后继结点，也就不需要同时锁住很长的一段路径
+ * (4) 松弛平衡：插入、删除之后不在同一个临界区内完成整条路径的重平衡，而是由修改的线程沿父结点向上逐个修复
+ *     （fixHeightAndRebalance），每一步只锁住少数几个结点；修复过程中其他线程可以看到暂时不平衡的树，
+ *     所有修复完成后仍然满足AVL的高度约束
+ *
+ * 值不允许为null（null表示路由结点）。size() 是弱一致的
+ */
+public class ConcurrentAVLTree<Key extends Comparable<Key>, Value> {
+    // version 的取值
+    private static final long UNLINKED = 1L;            // 结点已从树中摘除
+    private static final long SHRINKING = 2L;           // 正在旋转，结点的键范围正在缩小
+    private static final long SHRINK_COUNT_INCR = 4L;   // 每次旋转结束时加一
+
+    private static final int SPIN_COUNT = 100;
+    private static final int YIELD_COUNT = 0;
+
+    // 查找过程中发现路径失效，需要回到上一层重试
+    private static final Object RETRY = new Object();
+
+    // nodeCondition 的返回值：非负数表示需要把高度修正为该值
+    private static final int UNLINK_REQUIRED = -1;
+    private static final int REBALANCE_REQUIRED = -2;
+    private static final int NOTHING_REQUIRED = -3;
+
+    // 根结点的父结点：不存放键，根结点是它的右孩子，它自己永远不会旋转
+    private final Node holder = new Node(null, null, null);
+    private final LongAdder size = new LongAdder();
+
+    private class Node{
+        private final Key key;
+        private volatile Value val;           // 为null时是路由结点
+        private volatile int height;
+        private volatile long version;
+        private volatile Node parent;
+        private volatile Node left, right;
+
+        Node(Key key, Value val, Node parent){
+            this.key = key;
+            this.val = val;
+            this.parent = parent;
+            this.height = 1;
+        }
+
+        Node child(boolean goLeft){
+            return goLeft ? left : right;
+        }
+
+        void setChild(boolean goLeft, Node x){
+            if (goLeft){
+                left = x;
+            }else {
+                right = x;
+            }
+        }
+
+        // 等待正在进行的旋转结束：先自旋，再尝试获得结点的锁（旋转在持有该锁时进行）
+        void waitUntilShrinkCompleted(long v){
+            if ((v & SHRINKING) == 0){
+                return;
+            }
+            for (int i = 0; i < SPIN_COUNT; i++) {
+                if (version != v){
+                    return;
+                }
+            }
+            for (int i = 0; i < YIELD_COUNT; i++) {
+                Thread.yield();
+                if (version != v){
+                    return;
+                }
+            }
+            synchronized (this){
+                // 拿到锁说明旋转已经结束
+            }
+        }
+    }
+
+    private static boolean isShrinkingOrUnlinked(long v){
+        return (v & (SHRINKING | UNLINKED)) != 0;
+    }
+
+    private static boolean isUnlinked(long v){
+        return v == UNLINKED;
+    }
+
+    private static long beginChange(long v){
+        return v | SHRINKING;
+    }
+
+    private static long endChange(long v){
+        return (v | SHRINKING) + SHRINK_COUNT_INCR - SHRINKING;
+    }
+
+    private int getHeight(Node x){
+        return (x == null) ? 0 : x.height;
+    }
+
+    // 弱一致的元素个数
+    public int size(){
+        return (int) Math.max(0, size.sum());
+    }
+
+    public boolean isEmpty(){
+        return size() == 0;
+    }
+
+    // 树的高度（包括路由结点），空树为0
+    public int height(){
+        return getHeight(holder.right);
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 查找：不加锁，逐层验证版本号
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    // ***1. 查找Key=key元素的值，不存在时返回null
+    public Value get(Key key){
+        if (key == null) throw new IllegalArgumentException("calls get() with a null key");
+        while (true){
+            Node root = holder.right;
+            if (root == null){
+                return null;
+            }
+            int cmp = key.compareTo(root.key);
+            if (cmp == 0){
+                return root.val;
+            }
+            long v = root.version;
+            if (isShrinkingOrUnlinked(v)){
+                root.waitUntilShrinkCompleted(v);
+            }else if (root == holder.right){
+                Object val = attemptGet(key, root, cmp < 0, v);
+                if (val != RETRY){
+                    return cast(val);
+                }
+            }
+        }
+    }
+
+    public boolean contains(Key key){
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Value cast(Object val){
+        return (Value) val;
+    }
+
+    // 已经确认从父结点到x的路径在x的版本号为v时有效，在x的goLeft一侧的子树中查找
+    private Object attemptGet(Key key, Node x, boolean goLeft, long v){
+        while (true){
+            Node child = x.child(goLeft);
+            if (child == null){
+                // 读取child时x的范围仍然有效才能断定key不存在
+                return x.version != v ? RETRY : null;
+            }
+            int cmp = key.compareTo(child.key);
+            if (cmp == 0){
+                return child.val;
+            }
+            long childV = child.version;
+            if (isShrinkingOrUnlinked(childV)){
+                child.waitUntilShrinkCompleted(childV);
+                if (x.version != v){
+                    return RETRY;
+                }
+            }else if (child != x.child(goLeft)){
+                // 第二次读取child是在childV的保护下进行的
+                if (x.version != v){
+                    return RETRY;
+                }
+            }else {
+                if (x.version != v){
+                    return RETRY;
+                }
+                // 此时x到child的一步也有效了，之后x再旋转不影响在child中的查找
+                Object val = attemptGet(key, child, cmp < 0, childV);
+                if (val != RETRY){
+                    return val;
+                }
+            }
+        }
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 修改：put 与 delete 共用同一条查找路径，val为null表示删除
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    // ***2. 插入键值对key-val。如果已存在，仅更新值
+    public void put(Key key, Value val){
+        if (key == null) throw new IllegalArgumentException("calls put() with a null key");
+        if (val == null) throw new IllegalArgumentException("calls put() with a null value");
+        update(key, val);
+    }
+
+    // ***11. 删除键为key的元素
+    public void delete(Key key){
+        if (key == null) throw new IllegalArgumentException("calls delete() with a null key");
+        update(key, null);
+    }
+
+    private void update(Key key, Value val){
+        while (true){
+            Node root = holder.right;
+            if (root == null){
+                if (val == null || attemptInsertIntoEmpty(key, val)){
+                    return;
+                }
+            }else {
+                long v = root.version;
+                if (isShrinkingOrUnlinked(v)){
+                    root.waitUntilShrinkCompleted(v);
+                }else if (root == holder.right){
+                    if (attemptUpdate(key, val, holder, root, v) != RETRY){
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean attemptInsertIntoEmpty(Key key, Value val){
+        synchronized (holder){
+            if (holder.right != null){
+                return false;
+            }
+            holder.right = new Node(key, val, holder);
+            holder.height = 2;
+        }
+        size.increment();
+        return true;
+    }
+
+    private Object attemptUpdate(Key key, Value val, Node parent, Node x, long v){
+        int cmp = key.compareTo(x.key);
+        if (cmp == 0){
+            return attemptNodeUpdate(val, parent, x);
+        }
+        boolean goLeft = cmp < 0;
+
+        while (true){
+            Node child = x.child(goLeft);
+            if (x.version != v){
+                return RETRY;
+            }
+
+            if (child == null){
+                if (val == null){
+                    // 要删除的键不存在
+                    return null;
+                }
+                // 插入新的叶子结点：锁住x后重新验证
+                boolean inserted;
+                Node damaged = null;
+                synchronized (x){
+                    if (x.version != v){
+                        return RETRY;
+                    }
+                    // 与并发的插入冲突时在x这一层重试
+                    inserted = x.child(goLeft) == null;
+                    if (inserted){
+                        x.setChild(goLeft, new Node(key, val, x));
+                        damaged = fixHeight(x);
+                    }
+                }
+                if (inserted){
+                    size.increment();
+                    fixHeightAndRebalance(damaged);
+                    return null;
+                }
+            }else {
+                long childV = child.version;
+                if (isShrinkingOrUnlinked(childV)){
+                    child.waitUntilShrinkCompleted(childV);
+                }else if (child != x.child(goLeft)){
+                    // 重试
+                }else {
+                    if (x.version != v){
+                        return RETRY;
+                    }
+                    Object result = attemptUpdate(key, val, x, child, childV);
+                    if (result != RETRY){
+                        return result;
+                    }
+                }
+            }
+        }
+    }
+
+    // 找到了键为key的结点x，parent只在需要摘除x时使用
+    private Object attemptNodeUpdate(Value val, Node parent, Node x){
+        if (val == null && x.val == null){
+            // 已经是路由结点（被删除了）
+            return null;
+        }
+
+        if (val == null && (x.left == null || x.right == null)){
+            // 删除且x最多只有一个孩子：直接摘除，需要锁住parent和x
+            Node damaged;
+            synchronized (parent){
+                if (isUnlinked(parent.version) || x.parent != parent){
+                    return RETRY;
+                }
+                synchronized (x){
+                    if (x.val == null){
+                        return null;
+                    }
+                    if (!attemptUnlink(parent, x)){
+                        return RETRY;
+                    }
+                }
+                damaged = fixHeight(parent);
+            }
+            size.decrement();
+            fixHeightAndRebalance(damaged);
+            return null;
+        }
+
+        synchronized (x){
+            if (isUnlinked(x.version)){
+                return RETRY;
+            }
+            Value old = x.val;
+            // 加锁后发现可以摘除了，重试以走上面的分支
+            if (val == null && (x.left == null || x.right == null)){
+                return RETRY;
+            }
+            x.val = val;
+            if (old == null && val != null){
+                size.increment();
+            }else if (old != null && val == null){
+                size.decrement();
+            }
+            return null;
+        }
+    }
+
+    // 摘除最多只有一个孩子的结点x，parent和x都已加锁；不修改高度
+    private boolean attemptUnlink(Node parent, Node x){
+        Node parentL = parent.left, parentR = parent.right;
+        if (parentL != x && parentR != x){
+            return false;
+        }
+        Node l = x.left, r = x.right;
+        if (l != null && r != null){
+            return false;
+        }
+        Node splice = l != null ? l : r;
+        if (parentL == x){
+            parent.left = splice;
+        }else {
+            parent.right = splice;
+        }
+        if (splice != null){
+            splice.parent = parent;
+        }
+        x.version = UNLINKED;
+        x.val = null;
+        return true;
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 松弛平衡：修改链接的线程负责修复被它破坏的结点，沿父结点向上直到不再需要修复
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    // 不加锁地判断结点需要什么修复：摘除（没用的路由结点）、旋转、修正高度，或者什么都不需要
+    private int nodeCondition(Node x){
+        Node l = x.left, r = x.right;
+        if ((l == null || r == null) && x.val == null){
+            return UNLINK_REQUIRED;
+        }
+        int h = x.height;
+        int hl = getHeight(l), hr = getHeight(r);
+        int newHeight = 1 + Math.max(hl, hr);
+        int balanceFactor = hl - hr;
+        if (balanceFactor < -1 || balanceFactor > 1){
+            return REBALANCE_REQUIRED;
+        }
+        return h != newHeight ? newHeight : NOTHING_REQUIRED;
+    }
+
+    private void fixHeightAndRebalance(Node x){
+        while (x != null && x.parent != null){
+            int condition = nodeCondition(x);
+            if (condition == NOTHING_REQUIRED || isUnlinked(x.version)){
+                return;
+            }
+            if (condition != UNLINK_REQUIRED && condition != REBALANCE_REQUIRED){
+                synchronized (x){
+                    x = fixHeight(x);
+                }
+            }else {
+                Node parent = x.parent;
+                synchronized (parent){
+                    if (!isUnlinked(parent.version) && x.parent == parent){
+                        synchronized (x){
+                            x = rebalance(parent, x);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // x已加锁：尝试修正x的高度，返回下一个需要由当前线程修复的结点，不需要时返回null
+    private Node fixHeight(Node x){
+        int c = nodeCondition(x);
+        switch (c){
+            case REBALANCE_REQUIRED:
+            case UNLINK_REQUIRED:
+                return x;
+            case NOTHING_REQUIRED:
+                return null;
+            default:
+                x.height = c;
+                // 父结点的高度可能也要变
+                return x.parent;
+        }
+    }
+
+    // parent和x已加锁
+    private Node rebalance(Node parent, Node x){
+        Node l = x.left, r = x.right;
+        if ((l == null || r == null) && x.val == null){
+            if (attemptUnlink(parent, x)){
+                return fixHeight(parent);
+            }
+            return x;
+        }
+
+        int h = x.height;
+        int hl = getHeight(l), hr = getHeight(r);
+        int newHeight = 1 + Math.max(hl, hr);
+        int balanceFactor = hl - hr;
+
+        if (balanceFactor > 1){
+            return rebalanceToRight(parent, x, l, hr);
+        }else if (balanceFactor < -1){
+            return rebalanceToLeft(parent, x, r, hl);
+        }else if (newHeight != h){
+            x.height = newHeight;
+            return fixHeight(parent);
+        }
+        return null;
+    }
+
+    // 左子树过高：右旋（LL），或先对左孩子左旋再右旋（LR）
+    private Node rebalanceToRight(Node parent, Node x, Node l, int hr){
+        synchronized (l){
+            // l是可以摘除的路由结点：先摘除，再重新判断x
+            if ((l.left == null || l.right == null) && l.val == null){
+                attemptUnlink(x, l);
+                return x;
+            }
+            int hl = l.height;
+            if (hl - hr <= 1){
+                return x;
+            }
+            Node lr = l.right;
+            int hll = getHeight(l.left);
+            int hlr = getHeight(lr);
+            if (hll >= hlr){
+                return rightRotate(parent, x, l, hr, hll, lr, hlr);
+            }
+            synchronized (lr){
+                hlr = lr.height;
+                if (hll >= hlr){
+                    return rightRotate(parent, x, l, hr, hll, lr, hlr);
+                }
+                int hlrl = getHeight(lr.left);
+                int b = hll - hlrl;
+                // 双旋之后l是平衡的才做双旋，否则先单独处理l
+                if (b >= -1 && b <= 1){
+                    return rightRotateOverLeft(parent, x, l, hr, hll, lr, hlrl);
+                }
+            }
+            return rebalanceToLeft(x, l, lr, hll);
+        }
+    }
+
+    // 右子树过高：左旋（RR），或先对右孩子右旋再左旋（RL）
+    private Node rebalanceToLeft(Node parent, Node x, Node r, int hl){
+        synchronized (r){
+            if ((r.left == null || r.right == null) && r.val == null){
+                attemptUnlink(x, r);
+                return x;
+            }
+            int hr = r.height;
+            if (hl - hr >= -1){
+                return x;
+            }
+            Node rl = r.left;
+            int hrl = getHeight(rl);
+            int hrr = getHeight(r.right);
+            if (hrr >= hrl){
+                return leftRotate(parent, x, r, hl, hrr, rl, hrl);
+            }
+            synchronized (rl){
+                hrl = rl.height;
+                if (hrr >= hrl){
+                    return leftRotate(parent, x, r, hl, hrr, rl, hrl);
+                }
+                int hrlr = getHeight(rl.right);
+                int b = hrr - hrlr;
+                if (b >= -1 && b <= 1){
+                    return leftRotateOverRight(parent, x, r, hl, hrr, rl, hrlr);
+                }
+            }
+            return rebalanceToRight(x, r, rl, hrr);
+        }
+    }
+
+    // 对结点x进行向右旋转操作，x下沉，范围缩小，旋转期间将其标记为SHRINKING
+    //              x                                  l
+    //             /  \                              /   \
+    //            l    T4     向右旋转 (x)          ll     x
+    //           / \        - - - - - - - ->             /  \
+    //          ll  lr                                  lr   T4
+    private Node rightRotate(Node parent, Node x, Node l, int hr, int hll, Node lr, int hlr){
+        long v = x.version;
+        Node parentL = parent.left;
+        x.version = beginChange(v);
+
+        x.left = lr;
+        if (lr != null){
+            lr.parent = x;
+        }
+        l.right = x;
+        x.parent = l;
+        if (parentL == x){
+            parent.left = l;
+        }else {
+            parent.right = l;
+        }
+        l.parent = parent;
+
+        int hx = 1 + Math.max(hlr, hr);
+        x.height = hx;
+        l.height = 1 + Math.max(hll, hx);
+
+        x.version = endChange(v);
+
+        // 被破坏的有parent、x、l，x最深，先尽量用手上已有的锁修复。
+        // x成为只有一个孩子的路由结点时，它的新父结点l已加锁，直接摘除；
+        // 否则摘除之后只会沿l向上修复，l的高度不变时parent的高度就没人管了
+        if ((lr == null || hr == 0) && x.val == null){
+            attemptUnlink(l, x);
+            hx = getHeight(l.right);
+            l.height = 1 + Math.max(hll, hx);
+        }else {
+            int balanceX = hlr - hr;
+            if (balanceX < -1 || balanceX > 1){
+                return x;
+            }
+        }
+        int balanceL = hll - hx;
+        if (balanceL < -1 || balanceL > 1){
+            return l;
+        }
+        if (hll == 0 && l.val == null){
+            return l;
+        }
+        return fixHeight(parent);
+    }
+
+    // 对结点x进行向左旋转操作，与rightRotate对称
+    private Node leftRotate(Node parent, Node x, Node r, int hl, int hrr, Node rl, int hrl){
+        long v = x.version;
+        Node parentL = parent.left;
+        x.version = beginChange(v);
+
+        x.right = rl;
+        if (rl != null){
+            rl.parent = x;
+        }
+        r.left = x;
+        x.parent = r;
+        if (parentL == x){
+            parent.left = r;
+        }else {
+            parent.right = r;
+        }
+        r.parent = parent;
+
+        int hx = 1 + Math.max(hl, hrl);
+        x.height = hx;
+        r.height = 1 + Math.max(hx, hrr);
+
+        x.version = endChange(v);
+
+        if ((rl == null || hl == 0) && x.val == null){
+            attemptUnlink(r, x);
+            hx = getHeight(r.left);
+            r.height = 1 + Math.max(hx, hrr);
+        }else {
+            int balanceX = hrl - hl;
+            if (balanceX < -1 || balanceX > 1){
+                return x;
+            }
+        }
+        int balanceR = hrr - hx;
+        if (balanceR < -1 || balanceR > 1){
+            return r;
+        }
+        if (hrr == 0 && r.val == null){
+            return r;
+        }
+        return fixHeight(parent);
+    }
+
+    // LR：先对l左旋再对x右旋，一次完成；x和l都下沉
+    //              x                                   lr
+    //             /  \                              /      \
+    //            l    T4                           l        x
+    //           / \          - - - - - - - ->     / \      / \
+    //          ll  lr                            ll lrl  lrr  T4
+    //             /  \
+    //           lrl  lrr
+    private Node rightRotateOverLeft(Node parent, Node x, Node l, int hr, int hll, Node lr, int hlrl){
+        long v = x.version;
+        long lv = l.version;
+        Node parentL = parent.left;
+        Node lrl = lr.left;
+        Node lrr = lr.right;
+        int hlrr = getHeight(lrr);
+
+        x.version = beginChange(v);
+        l.version = beginChange(lv);
+
+        x.left = lrr;
+        if (lrr != null){
+            lrr.parent = x;
+        }
+        l.right = lrl;
+        if (lrl != null){
+            lrl.parent = l;
+        }
+        lr.left = l;
+        l.parent = lr;
+        lr.right = x;
+        x.parent = lr;
+        if (parentL == x){
+            parent.left = lr;
+        }else {
+            parent.right = lr;
+        }
+        lr.parent = parent;
+
+        int hx = 1 + Math.max(hlrr, hr);
+        x.height = hx;
+        int hl = 1 + Math.max(hll, hlrl);
+        l.height = hl;
+
+        x.version = endChange(v);
+        l.version = endChange(lv);
+
+        // lrl为空时l可能成为只有一个孩子的路由结点，lr和l都已加锁，直接摘除
+        if ((l.left == null || lrl == null) && l.val == null){
+            attemptUnlink(lr, l);
+            hl = getHeight(lr.left);
+        }
+        lr.height = 1 + Math.max(hl, hx);
+
+        if ((lrr == null || hr == 0) && x.val == null){
+            attemptUnlink(lr, x);
+            hx = getHeight(lr.right);
+            lr.height = 1 + Math.max(hl, hx);
+        }else {
+            int balanceX = hlrr - hr;
+            if (balanceX < -1 || balanceX > 1){
+                return x;
+            }
+        }
+        int balanceLR = hl - hx;
+        if (balanceLR < -1 || balanceLR > 1){
+            return lr;
+        }
+        return fixHeight(parent);
+    }
+
+    // RL：先对r右旋再对x左旋，与rightRotateOverLeft对称
+    private Node leftRotateOverRight(Node parent, Node x, Node r, int hl, int hrr, Node rl, int hrlr){
+        long v = x.version;
+        long rv = r.version;
+        Node parentL = parent.left;
+        Node rll = rl.left;
+        Node rlr = rl.right;
+        int hrll = getHeight(rll);
+
+        x.version = beginChange(v);
+        r.version = beginChange(rv);
+
+        x.right = rll;
+        if (rll != null){
+            rll.parent = x;
+        }
+        r.left = rlr;
+        if (rlr != null){
+            rlr.parent = r;
+        }
+        rl.right = r;
+        r.parent = rl;
+        rl.left = x;
+        x.parent = rl;
+        if (parentL == x){
+            parent.left = rl;
+        }else {
+            parent.right = rl;
+        }
+        rl.parent = parent;
+
+        int hx = 1 + Math.max(hl, hrll);
+        x.height = hx;
+        int hr = 1 + Math.max(hrlr, hrr);
+        r.height = hr;
+
+        x.version = endChange(v);
+        r.version = endChange(rv);
+
+        if ((r.right == null || rlr == null) && r.val == null){
+            attemptUnlink(rl, r);
+            hr = getHeight(rl.right);
+        }
+        rl.height = 1 + Math.max(hx, hr);
+
+        if ((rll == null || hl == 0) && x.val == null){
+            attemptUnlink(rl, x);
+            hx = getHeight(rl.left);
+            rl.height = 1 + Math.max(hx, hr);
+        }else {
+            int balanceX = hrll - hl;
+            if (balanceX < -1 || balanceX > 1){
+                return x;
+            }
+        }
+        int balanceRL = hr - hx;
+        if (balanceRL < -1 || balanceRL > 1){
+            return rl;
+        }
+        return fixHeight(parent);
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 检查（只在没有并发修改时调用）：二叉搜索树、平衡、高度正确、没有多余的路由结点、parent链接正确
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    public boolean isBalanced(){
+        return check(holder.right, holder, null, null) >= 0;
+    }
+
+    // 返回子树的高度，不满足条件时返回-1
+    private int check(Node x, Node parent, Key lo, Key hi){
+        if (x == null){
+            return 0;
+        }
+        if (x.parent != parent || isUnlinked(x.version)) return -1;
+        if (lo != null && x.key.compareTo(lo) <= 0) return -1;
+        if (hi != null && x.key.compareTo(hi) >= 0) return -1;
+        if (x.val == null && (x.left == null || x.right == null)) return -1;
+        int hl = check(x.left, x, lo, x.key);
+        int hr = check(x.right, x, x.key, hi);
+        if (hl < 0 || hr < 0 || Math.abs(hl - hr) > 1) return -1;
+        int h = 1 + Math.max(hl, hr);
+        return h == x.height ? h : -1;
+    }
+}
@@ -0,0 +1,306 @@
+package AVL;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * int 键、int 值的AVL树，结点不是对象，而是各个并行数组中的同一个下标（struct of arrays）
+ *
+ * keys[x], vals[x], left[x], right[x], height[x], N[x] 合起来表示结点x，子结点用int下标代替引用
+ * (1) 每个结点 4+4+4+4+1+4 = 21 字节，AVLTree<Integer, Integer> 中每个结点约为Node对象40字节加两个Integer对象各16字节
+ * (2) 下标0表示空结点，各数组的0号位置始终为0，故 height[0] = N[0] = 0，不需要对空结点做特殊处理
+ * (3) 数组满了时容量翻倍；删除的结点放入空闲链表（借用left[]指向下一个空闲结点），插入时优先复用，
+ *     容量足够之后插入不再分配任何对象
+ * (4) 旋转只是修改几个下标，结点本身不移动
+ */
+public class IntAVLTree {
+    private int[] keys;
+    private int[] vals;
+    private int[] left, right;
+    private byte[] height;        // AVL树的高度不超过 1.44lgN，byte足够
+    private int[] N;              // 以该结点为根的子树的结点总数
+
+    private int root;             // 根结点下标，0为空树
+    private int next = 1;         // 下一个从未使用过的下标，0号保留为空结点
+    private int free;             // 空闲链表的头，0为空
+
+    public IntAVLTree(int capacity){
+        int cap = Math.max(capacity, 1) + 1;
+        keys = new int[cap];
+        vals = new int[cap];
+        left = new int[cap];
+        right = new int[cap];
+        height = new byte[cap];
+        N = new int[cap];
+    }
+
+    public IntAVLTree(){
+        this(16);
+    }
+
+    private void resize(int capacity){
+        keys = Arrays.copyOf(keys, capacity);
+        vals = Arrays.copyOf(vals, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        height = Arrays.copyOf(height, capacity);
+        N = Arrays.copyOf(N, capacity);
+    }
+
+    // 分配一个叶子结点：优先从空闲链表中取
+    private int allocate(int key, int val){
+        int x;
+        if (free != 0){
+            x = free;
+            free = left[x];
+        }else {
+            if (next == keys.length){
+                if (next == Integer.MAX_VALUE) throw new IllegalStateException("tree is full");
+                resize((int) Math.min(2L * keys.length, Integer.MAX_VALUE));
+            }
+            x = next++;
+        }
+        keys[x] = key;
+        vals[x] = val;
+        left[x] = 0;
+        right[x] = 0;
+        height[x] = 1;
+        N[x] = 1;
+        return x;
+    }
+
+    // 回收结点：用left[]串成空闲链表
+    private void release(int x){
+        left[x] = free;
+        free = x;
+    }
+
+    // 由孩子重新计算结点的高度和结点计数，返回结点的平衡因子
+    private int update(int x){
+        int l = left[x], r = right[x];
+        int hl = height[l], hr = height[r];
+        height[x] = (byte) (1 + Math.max(hl, hr));
+        N[x] = 1 + N[l] + N[r];
+        return hl - hr;
+    }
+
+    public int size(){
+        return N[root];
+    }
+
+    public boolean isEmpty(){
+        return root == 0;
+    }
+
+    public int height(){
+        return height[root];
+    }
+
+    private int find(int key){
+        int x = root;
+        while (x != 0){
+            int k = keys[x];
+            if (key < k){
+                x = left[x];
+            }else if (key > k){
+                x = right[x];
+            }else {
+                return x;
+            }
+        }
+        return 0;
+    }
+
+    public boolean contains(int key){
+        return find(key) != 0;
+    }
+
+    // ***1. 查找Key=key元素的值，不存在时抛出NoSuchElementException
+    public int get(int key){
+        int x = find(key);
+        if (x == 0) throw new NoSuchElementException("key not found: " + key);
+        return vals[x];
+    }
+
+    public int getOrDefault(int key, int defaultValue){
+        int x = find(key);
+        return x == 0 ? defaultValue : vals[x];
+    }
+
+    // ***3. 返回最小键
+    public int min(){
+        if (isEmpty()) throw new NoSuchElementException("calls min() with empty symbol table");
+        int x = root;
+        while (left[x] != 0){
+            x = left[x];
+        }
+        return keys[x];
+    }
+
+    // 4. 返回最大键
+    public int max(){
+        if (isEmpty()) throw new NoSuchElementException("calls max() with empty symbol table");
+        int x = root;
+        while (right[x] != 0){
+            x = right[x];
+        }
+        return keys[x];
+    }
+
+    // ***7. 找到排名为k的键：即树中正好有k个小于它的键
+    public int select(int k){
+        if (k < 0 || k >= size()) throw new IllegalArgumentException("argument to select() is invalid: " + k);
+        int x = root;
+        while (true){
+            int t = N[left[x]];
+            if (t == k){
+                return keys[x];
+            }else if (t < k){
+                k = k - t - 1;
+                x = right[x];
+            }else {
+                x = left[x];
+            }
+        }
+    }
+
+    // ***8. 返回给定键的排名：树中小于key的键的数量
+    public int rank(int key){
+        int x = root;
+        int r = 0;
+        while (x != 0){
+            int k = keys[x];
+            if (key < k){
+                x = left[x];
+            }else if (key > k){
+                r += N[left[x]] + 1;
+                x = right[x];
+            }else {
+                return r + N[left[x]];
+            }
+        }
+        return r;
+    }
+
+    // ***2. 插入键值对key-val。如果已存在，仅更新值
+    public void put(int key, int val){
+        root = put(root, key, val);
+    }
+    private int put(int x, int key, int val){
+        if (x == 0){
+            return allocate(key, val);
+        }
+
+        int k = keys[x];
+        if (key < k){
+            // 先递归再写回：递归中可能扩容，left引用的数组会变
+            int l = put(left[x], key, val);
+            left[x] = l;
+        }else if (key > k){
+            int r = put(right[x], key, val);
+            right[x] = r;
+        }else {
+            vals[x] = val;
+            return x;
+        }
+        return balance(x, update(x));
+    }
+
+    // ***11. 删除键为key的元素
+    public void delete(int key){
+        root = delete(root, key);
+    }
+    private int delete(int x, int key){
+        if (x == 0){
+            return 0;
+        }
+
+        int k = keys[x];
+        if (key < k){
+            left[x] = delete(left[x], key);
+        }else if (key > k){
+            right[x] = delete(right[x], key);
+        }else {
+            int l = left[x], r = right[x];
+            if (l == 0 || r == 0){
+                release(x);
+                return l == 0 ? r : l;
+            }
+            // 有两个孩子：把后继结点的键值复制过来，再从右子树中删除后继结点
+            int s = r;
+            while (left[s] != 0){
+                s = left[s];
+            }
+            keys[x] = keys[s];
+            vals[x] = vals[s];
+            right[x] = delete(r, keys[s]);
+        }
+        return balance(x, update(x));
+    }
+
+    private int getBalanceFactor(int x){
+        return height[left[x]] - height[right[x]];
+    }
+
+    // 平衡维护，与 AVLTree 相同的四种情况
+    private int balance(int x, int balanceFactor){
+        // 1. LL
+        if (balanceFactor > 1 && getBalanceFactor(left[x]) >= 0){
+            return rightRotate(x);
+        }
+        // 2. RR
+        if (balanceFactor < -1 && getBalanceFactor(right[x]) <= 0){
+            return leftRotate(x);
+        }
+        // 3. LR
+        if (balanceFactor > 1){
+            left[x] = leftRotate(left[x]);
+            return rightRotate(x);
+        }
+        // 4. RL
+        if (balanceFactor < -1){
+            right[x] = rightRotate(right[x]);
+            return leftRotate(x);
+        }
+        return x;
+    }
+
+    // 对结点y进行向右旋转操作，返回旋转后新的根结点x
+    private int rightRotate(int y){
+        int x = left[y];
+        left[y] = right[x];
+        right[x] = y;
+        update(y);
+        update(x);
+        return x;
+    }
+
+    // 对结点y进行向左旋转操作，返回旋转后新的根结点x
+    private int leftRotate(int y){
+        int x = right[y];
+        right[y] = left[x];
+        left[x] = y;
+        update(y);
+        update(x);
+        return x;
+    }
+
+    // 判断是否是平衡的二叉搜索树，并检查height和N
+    public boolean isBalanced(){
+        return check(root, 0, 0, false, false);
+    }
+
+    private boolean check(int x, int lo, int hi, boolean hasLo, boolean hasHi){
+        if (x == 0){
+            return true;
+        }
+        int k = keys[x];
+        if (hasLo && k <= lo) return false;
+        if (hasHi && k >= hi) return false;
+        int l = left[x], r = right[x];
+        if (Math.abs(height[l] - height[r]) > 1) return false;
+        if (height[x] != 1 + Math.max(height[l], height[r])) return false;
+        if (N[x] != 1 + N[l] + N[r]) return false;
+        return check(l, lo, k, hasLo, true) && check(r, k, hi, true, hasHi);
+    }
+}
@@ -0,0 +1,381 @@
+package AVL;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * 堆外的AVL树：long 键、long 值，结点存放在直接内存（direct ByteBuffer）中，GC看不到这些结点
+ *
+ * (1) 每个结点固定32字节：key(8) val(8) left(4) right(4) height(4) N(4)，子结点用int编号代替引用
+ * (2) 结点编号x位于第 x >>> CHUNK_SHIFT 块的 (x & CHUNK_MASK) * 32 字节处，每块 2^20 个结点（32MB），
+ *     按需分配新块，int编号最多可以表示 2^31 个结点（64GB），不受单个ByteBuffer 2GB的限制
+ * (3) 编号0表示空结点，0号槽位始终为全0，故 height(0) = size(0) = 0，不需要对空结点做特殊处理
+ * (4) 删除的结点放入空闲链表（借用left字段指向下一个空闲结点），插入时优先复用
+ *
+ * 堆上只有块数组本身，结点数量再多也不会增加GC的扫描和复制成本。直接内存在树对象不可达之后由GC回收，
+ * 需要立刻释放时调用 clear()，不再引用旧的块
+ */
+public class OffHeapAVLTree {
+    private static final int NODE_BYTES = 32;
+    private static final int KEY = 0, VAL = 8, LEFT = 16, RIGHT = 20, HEIGHT = 24, COUNT = 28;
+
+    private static final int CHUNK_SHIFT = 20;
+    private static final int CHUNK_NODES = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_NODES - 1;
+
+    private ByteBuffer[] chunks;
+    private int root;           // 根结点编号，0为空树
+    private int next;           // 下一个从未使用过的编号
+    private int free;           // 空闲链表的头，0为空
+
+    public OffHeapAVLTree(){
+        clear();
+    }
+
+    // 删除所有结点并丢弃已分配的块
+    public void clear(){
+        chunks = new ByteBuffer[1];
+        chunks[0] = newChunk();
+        root = 0;
+        next = 1;               // 0号结点保留为空结点
+        free = 0;
+    }
+
+    private static ByteBuffer newChunk(){
+        return ByteBuffer.allocateDirect(CHUNK_NODES * NODE_BYTES).order(ByteOrder.nativeOrder());
+    }
+
+    // 已分配的直接内存字节数
+    public long offHeapBytes(){
+        long n = 0;
+        for (ByteBuffer chunk : chunks) {
+            if (chunk != null){
+                n += chunk.capacity();
+            }
+        }
+        return n;
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 结点字段的读写
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    private ByteBuffer chunk(int x){
+        return chunks[x >>> CHUNK_SHIFT];
+    }
+
+    private static int offset(int x){
+        return (x & CHUNK_MASK) * NODE_BYTES;
+    }
+
+    private long key(int x){
+        return chunk(x).getLong(offset(x) + KEY);
+    }
+
+    private long val(int x){
+        return chunk(x).getLong(offset(x) + VAL);
+    }
+
+    private int left(int x){
+        return chunk(x).getInt(offset(x) + LEFT);
+    }
+
+    private int right(int x){
+        return chunk(x).getInt(offset(x) + RIGHT);
+    }
+
+    private int getHeight(int x){
+        return chunk(x).getInt(offset(x) + HEIGHT);
+    }
+
+    private int size(int x){
+        return chunk(x).getInt(offset(x) + COUNT);
+    }
+
+    private void setKey(int x, long key){
+        chunk(x).putLong(offset(x) + KEY, key);
+    }
+
+    private void setVal(int x, long val){
+        chunk(x).putLong(offset(x) + VAL, val);
+    }
+
+    private void setLeft(int x, int left){
+        chunk(x).putInt(offset(x) + LEFT, left);
+    }
+
+    private void setRight(int x, int right){
+        chunk(x).putInt(offset(x) + RIGHT, right);
+    }
+
+    // 由孩子重新计算结点的高度和结点计数，返回结点的平衡因子（顺便算出，省去balance中再读一遍孩子）
+    private int update(int x){
+        ByteBuffer c = chunk(x);
+        int o = offset(x);
+        int l = c.getInt(o + LEFT), r = c.getInt(o + RIGHT);
+        int hl = getHeight(l), hr = getHeight(r);
+        c.putInt(o + HEIGHT, 1 + Math.max(hl, hr));
+        c.putInt(o + COUNT, 1 + size(l) + size(r));
+        return hl - hr;
+    }
+
+    // 分配一个叶子结点：优先从空闲链表中取
+    private int allocate(long key, long val){
+        int x;
+        if (free != 0){
+            x = free;
+            free = left(x);
+        }else {
+            if (next == Integer.MAX_VALUE) throw new IllegalStateException("off-heap tree is full");
+            x = next++;
+            int c = x >>> CHUNK_SHIFT;
+            if (c == chunks.length){
+                chunks = Arrays.copyOf(chunks, 2 * chunks.length);
+            }
+            if (chunks[c] == null){
+                chunks[c] = newChunk();
+            }
+        }
+        ByteBuffer c = chunk(x);
+        int o = offset(x);
+        c.putLong(o + KEY, key);
+        c.putLong(o + VAL, val);
+        c.putInt(o + LEFT, 0);
+        c.putInt(o + RIGHT, 0);
+        c.putInt(o + HEIGHT, 1);
+        c.putInt(o + COUNT, 1);
+        return x;
+    }
+
+    // 回收结点：用left字段串成空闲链表
+    private void release(int x){
+        setLeft(x, free);
+        free = x;
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 有序符号表API
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    public int size(){
+        return size(root);
+    }
+
+    public boolean isEmpty(){
+        return root == 0;
+    }
+
+    public int height(){
+        return getHeight(root);
+    }
+
+    private int find(long key){
+        int x = root;
+        while (x != 0){
+            long k = key(x);
+            if (key < k){
+                x = left(x);
+            }else if (key > k){
+                x = right(x);
+            }else {
+                return x;
+            }
+        }
+        return 0;
+    }
+
+    public boolean contains(long key){
+        return find(key) != 0;
+    }
+
+    // ***1. 查找Key=key元素的值，不存在时抛出NoSuchElementException
+    public long get(long key){
+        int x = find(key);
+        if (x == 0) throw new NoSuchElementException("key not found: " + key);
+        return val(x);
+    }
+
+    public long getOrDefault(long key, long defaultValue){
+        int x = find(key);
+        return x == 0 ? defaultValue : val(x);
+    }
+
+    // ***3. 返回最小键
+    public long min(){
+        if (isEmpty()) throw new NoSuchElementException("calls min() with empty symbol table");
+        int x = root;
+        while (left(x) != 0){
+            x = left(x);
+        }
+        return key(x);
+    }
+
+    // 4. 返回最大键
+    public long max(){
+        if (isEmpty()) throw new NoSuchElementException("calls max() with empty symbol table");
+        int x = root;
+        while (right(x) != 0){
+            x = right(x);
+        }
+        return key(x);
+    }
+
+    // ***7. 找到排名为k的键：即树中正好有k个小于它的键
+    public long select(int k){
+        if (k < 0 || k >= size()) throw new IllegalArgumentException("argument to select() is invalid: " + k);
+        int x = root;
+        while (true){
+            int t = size(left(x));
+            if (t == k){
+                return key(x);
+            }else if (t < k){
+                k = k - t - 1;
+                x = right(x);
+            }else {
+                x = left(x);
+            }
+        }
+    }
+
+    // ***8. 返回给定键的排名：树中小于key的键的数量
+    public int rank(long key){
+        int x = root;
+        int r = 0;
+        while (x != 0){
+            long k = key(x);
+            if (key < k){
+                x = left(x);
+            }else if (key > k){
+                r += size(left(x)) + 1;
+                x = right(x);
+            }else {
+                return r + size(left(x));
+            }
+        }
+        return r;
+    }
+
+    // ***2. 插入键值对key-val。如果已存在，仅更新值
+    public void put(long key, long val){
+        root = put(root, key, val);
+    }
+    private int put(int x, long key, long val){
+        if (x == 0){
+            return allocate(key, val);
+        }
+
+        long k = key(x);
+        if (key < k){
+            setLeft(x, put(left(x), key, val));
+        }else if (key > k){
+            setRight(x, put(right(x), key, val));
+        }else {
+            setVal(x, val);
+            return x;
+        }
+        return balance(x, update(x));
+    }
+
+    // ***11. 删除键为key的元素
+    public void delete(long key){
+        root = delete(root, key);
+    }
+    private int delete(int x, long key){
+        if (x == 0){
+            return 0;
+        }
+
+        long k = key(x);
+        if (key < k){
+            setLeft(x, delete(left(x), key));
+        }else if (key > k){
+            setRight(x, delete(right(x), key));
+        }else {
+            int l = left(x), r = right(x);
+            if (l == 0 || r == 0){
+                release(x);
+                return l == 0 ? r : l;
+            }
+            // 有两个孩子：把后继结点的键值复制过来，再从右子树中删除后继结点
+            int s = r;
+            while (left(s) != 0){
+                s = left(s);
+            }
+            long sk = key(s);
+            setKey(x, sk);
+            setVal(x, val(s));
+            setRight(x, delete(r, sk));
+        }
+        return balance(x, update(x));
+    }
+
+    private int getBalanceFactor(int x){
+        return getHeight(left(x)) - getHeight(right(x));
+    }
+
+    // 平衡维护，与 AVLTree 相同的四种情况
+    private int balance(int x, int balanceFactor){
+        // 1. LL
+        if (balanceFactor > 1 && getBalanceFactor(left(x)) >= 0){
+            return rightRotate(x);
+        }
+        // 2. RR
+        if (balanceFactor < -1 && getBalanceFactor(right(x)) <= 0){
+            return leftRotate(x);
+        }
+        // 3. LR
+        if (balanceFactor > 1){
+            setLeft(x, leftRotate(left(x)));
+            return rightRotate(x);
+        }
+        // 4. RL
+        if (balanceFactor < -1){
+            setRight(x, rightRotate(right(x)));
+            return leftRotate(x);
+        }
+        return x;
+    }
+
+    // 对结点y进行向右旋转操作，返回旋转后新的根结点x（只修改编号，不移动结点）
+    private int rightRotate(int y){
+        int x = left(y);
+        setLeft(y, right(x));
+        setRight(x, y);
+        update(y);
+        update(x);
+        return x;
+    }
+
+    // 对结点y进行向左旋转操作，返回旋转后新的根结点x
+    private int leftRotate(int y){
+        int x = right(y);
+        setRight(y, left(x));
+        setLeft(x, y);
+        update(y);
+        update(x);
+        return x;
+    }
+
+    // 判断是否是平衡的二叉搜索树，并检查height和N
+    public boolean isBalanced(){
+        return check(root, Long.MIN_VALUE, Long.MAX_VALUE, false, false);
+    }
+
+    private boolean check(int x, long lo, long hi, boolean hasLo, boolean hasHi){
+        if (x == 0){
+            return true;
+        }
+        long k = key(x);
+        if (hasLo && k <= lo) return false;
+        if (hasHi && k >= hi) return false;
+        int l = left(x), r = right(x);
+        if (Math.abs(getHeight(l) - getHeight(r)) > 1) return false;
+        if (getHeight(x) != 1 + Math.max(getHeight(l), getHeight(r))) return false;
+        if (size(x) != 1 + size(l) + size(r)) return false;
+        return check(l, lo, k, hasLo, true) && check(r, k, hi, true, hasHi);
+    }
+}
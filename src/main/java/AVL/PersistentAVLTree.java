@@ -0,0 +1,523 @@
+package AVL;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * 持久化（不可变）的AVL树：结点创建后不再修改
+ *
+ * (1) put/delete 不修改原有结点，而是复制从根结点到被修改位置的路径上的 O(logN) 个结点（path copying），
+ *     没有被修改的子树在新旧两个版本之间共享。旋转与 AVLTree 相同，只是在新结点上完成
+ * (2) 每次写操作最后用一次 volatile 写发布新的根结点。snapshot() 只是读取当前的根结点，O(1)，
+ *     之后的写操作不会影响已经取得的快照
+ * (3) 读操作不加锁：先读一次 root，之后只访问这个版本中不可变的结点；写操作之间用 synchronized 互斥
+ */
+public class PersistentAVLTree<Key extends Comparable<Key>, Value> {
+    // 当前版本的根结点
+    private volatile Node root;
+
+    // 不可变的结点：所有字段都是final，由构造函数根据孩子算出height和N
+    private class Node implements Map.Entry<Key, Value>{
+        private final Key key;              // 键
+        private final Value val;            // 值
+        private final Node left, right;     // 指向子树的链接
+        private final int height;           // 结点的高度
+        private final int N;                // 以该结点为根的子树的结点总数
+
+        public Node(Key key, Value val, Node left, Node right){
+            this.key = key;
+            this.val = val;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(getHeight(left), getHeight(right));
+            this.N = 1 + size(left) + size(right);
+        }
+
+        @Override
+        public Key getKey(){
+            return key;
+        }
+
+        @Override
+        public Value getValue(){
+            return val;
+        }
+
+        @Override
+        public Value setValue(Value val){
+            throw new UnsupportedOperationException("nodes of a persistent tree are immutable");
+        }
+    }
+
+    private int getHeight(Node x){
+        return (x == null) ? 0 : x.height;
+    }
+
+    private int size(Node x){
+        return (x == null) ? 0 : x.N;
+    }
+
+    private int getBalanceFactor(Node x){
+        return (x == null) ? 0 : getHeight(x.left) - getHeight(x.right);
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 快照：某个时刻的根结点，只读
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    public Snapshot snapshot(){
+        return new Snapshot(root);
+    }
+
+    public class Snapshot {
+        private final Node root;
+
+        private Snapshot(Node root){
+            this.root = root;
+        }
+
+        public int size(){
+            return PersistentAVLTree.this.size(root);
+        }
+
+        public boolean isEmpty(){
+            return root == null;
+        }
+
+        public int height(){
+            return getHeight(root);
+        }
+
+        public Value get(Key key){
+            return PersistentAVLTree.this.get(root, key);
+        }
+
+        public boolean contains(Key key){
+            return getNode(root, key) != null;
+        }
+
+        public Key min(){
+            return PersistentAVLTree.this.min(root);
+        }
+
+        public Key max(){
+            return PersistentAVLTree.this.max(root);
+        }
+
+        public Key floor(Key key){
+            return PersistentAVLTree.this.floor(root, key);
+        }
+
+        public Key ceiling(Key key){
+            return PersistentAVLTree.this.ceiling(root, key);
+        }
+
+        public Key select(int k){
+            return PersistentAVLTree.this.select(root, k);
+        }
+
+        public int rank(Key key){
+            return PersistentAVLTree.this.rank(root, key);
+        }
+
+        public int size(Key lo, Key hi){
+            return PersistentAVLTree.this.size(root, lo, hi);
+        }
+
+        public Iterable<Key> keys(Key lo, Key hi){
+            return PersistentAVLTree.this.keys(root, lo, hi);
+        }
+
+        public Iterable<Map.Entry<Key, Value>> entries(Key lo, Key hi){
+            return PersistentAVLTree.this.entries(root, lo, hi);
+        }
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 读操作：在当前版本上进行，不加锁
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    public int size(){
+        return size(root);
+    }
+
+    public boolean isEmpty(){
+        return root == null;
+    }
+
+    public int height(){
+        return getHeight(root);
+    }
+
+    // ***1. 查找Key=key元素的值，不存在时返回null
+    public Value get(Key key){
+        return get(root, key);
+    }
+
+    public boolean contains(Key key){
+        return getNode(root, key) != null;
+    }
+
+    // ***3. 返回最小键
+    public Key min(){
+        return min(root);
+    }
+
+    // 4. 返回最大键
+    public Key max(){
+        return max(root);
+    }
+
+    // ***5. 向下取整：小于等于key的最大键
+    public Key floor(Key key){
+        return floor(root, key);
+    }
+
+    // 6. 向上取整：大于等于key的最小键
+    public Key ceiling(Key key){
+        return ceiling(root, key);
+    }
+
+    // ***7. 找到排名为k的键
+    public Key select(int k){
+        return select(root, k);
+    }
+
+    // ***8. 返回给定键的排名：树中小于key的键的数量
+    public int rank(Key key){
+        return rank(root, key);
+    }
+
+    // [lo, hi]之间的键的数量
+    public int size(Key lo, Key hi){
+        return size(root, lo, hi);
+    }
+
+    // [lo, hi]之间的键，从小到大
+    public Iterable<Key> keys(Key lo, Key hi){
+        return keys(root, lo, hi);
+    }
+
+    // [lo, hi]之间的键值对，从小到大
+    public Iterable<Map.Entry<Key, Value>> entries(Key lo, Key hi){
+        return entries(root, lo, hi);
+    }
+
+    private Value get(Node root, Key key){
+        Node x = getNode(root, key);
+        return x == null ? null : x.val;
+    }
+
+    private Node getNode(Node x, Key key){
+        if (key == null) throw new IllegalArgumentException("calls get() with a null key");
+        while (x != null){
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0){
+                x = x.left;
+            }else if (cmp > 0){
+                x = x.right;
+            }else {
+                return x;
+            }
+        }
+        return null;
+    }
+
+    private Key min(Node x){
+        if (x == null){
+            return null;
+        }
+        while (x.left != null){
+            x = x.left;
+        }
+        return x.key;
+    }
+
+    private Key max(Node x){
+        if (x == null){
+            return null;
+        }
+        while (x.right != null){
+            x = x.right;
+        }
+        return x.key;
+    }
+
+    private Key floor(Node x, Key key){
+        if (key == null) throw new IllegalArgumentException("calls floor() with a null key");
+        Node best = null;
+        while (x != null){
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0){
+                x = x.left;
+            }else if (cmp > 0){
+                best = x;
+                x = x.right;
+            }else {
+                return x.key;
+            }
+        }
+        return best == null ? null : best.key;
+    }
+
+    private Key ceiling(Node x, Key key){
+        if (key == null) throw new IllegalArgumentException("calls ceiling() with a null key");
+        Node best = null;
+        while (x != null){
+            int cmp = key.compareTo(x.key);
+            if (cmp > 0){
+                x = x.right;
+            }else if (cmp < 0){
+                best = x;
+                x = x.left;
+            }else {
+                return x.key;
+            }
+        }
+        return best == null ? null : best.key;
+    }
+
+    private Key select(Node x, int k){
+        while (x != null){
+            int t = size(x.left);
+            if (t == k){
+                return x.key;
+            }else if (t < k){
+                k = k - t - 1;
+                x = x.right;
+            }else {
+                x = x.left;
+            }
+        }
+        return null;
+    }
+
+    private int rank(Node x, Key key){
+        if (key == null) throw new IllegalArgumentException("calls rank() with a null key");
+        int r = 0;
+        while (x != null){
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0){
+                x = x.left;
+            }else if (cmp > 0){
+                r += size(x.left) + 1;
+                x = x.right;
+            }else {
+                return r + size(x.left);
+            }
+        }
+        return r;
+    }
+
+    private int size(Node root, Key lo, Key hi){
+        if (lo == null || hi == null) throw new IllegalArgumentException("calls size() with a null key");
+        if (lo.compareTo(hi) > 0){
+            return 0;
+        }
+        int n = rank(root, hi) - rank(root, lo);
+        return getNode(root, hi) != null ? n + 1 : n;
+    }
+
+    private Iterable<Key> keys(Node root, Key lo, Key hi){
+        checkRange(lo, hi);
+        return () -> new RangeIterator<Key>(root, lo, hi, false);
+    }
+
+    private Iterable<Map.Entry<Key, Value>> entries(Node root, Key lo, Key hi){
+        checkRange(lo, hi);
+        return () -> new RangeIterator<Map.Entry<Key, Value>>(root, lo, hi, true);
+    }
+
+    private void checkRange(Key lo, Key hi){
+        if (lo == null) throw new IllegalArgumentException("first argument to keys() is null");
+        if (hi == null) throw new IllegalArgumentException("second argument to keys() is null");
+    }
+
+    // 中序遍历的迭代器：栈中为当前结点的左路径上不小于lo的结点，弹出的结点大于hi时结束
+    private class RangeIterator<T> implements Iterator<T> {
+        private final Key lo, hi;
+        private final boolean entries;
+        private final Deque<Node> stack = new ArrayDeque<>();
+
+        RangeIterator(Node root, Key lo, Key hi, boolean entries){
+            this.lo = lo;
+            this.hi = hi;
+            this.entries = entries;
+            pushLeft(root);
+        }
+
+        private void pushLeft(Node x){
+            while (x != null){
+                if (x.key.compareTo(lo) < 0){
+                    x = x.right;
+                }else {
+                    stack.push(x);
+                    x = x.left;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext(){
+            return !stack.isEmpty() && stack.peek().key.compareTo(hi) <= 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next(){
+            if (!hasNext()) throw new NoSuchElementException();
+            Node x = stack.pop();
+            pushLeft(x.right);
+            return entries ? (T) x : (T) x.key;
+        }
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 写操作：复制路径，最后发布新的根结点
+     * 子树没有变化时返回原来的结点，不复制（例如删除不存在的键、put相同的值）
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    // ***2. 插入键值对key-val。如果已存在，仅更新值
+    public synchronized void put(Key key, Value val){
+        if (key == null) throw new IllegalArgumentException("calls put() with a null key");
+        root = put(root, key, val);
+    }
+    private Node put(Node x, Key key, Value val){
+        if (x == null){
+            return new Node(key, val, null, null);
+        }
+
+        int cmp = key.compareTo(x.key);
+        if (cmp < 0){
+            Node left = put(x.left, key, val);
+            if (left == x.left){
+                return x;
+            }
+            return balance(new Node(x.key, x.val, left, x.right));
+        }else if (cmp > 0){
+            Node right = put(x.right, key, val);
+            if (right == x.right){
+                return x;
+            }
+            return balance(new Node(x.key, x.val, x.left, right));
+        }else {
+            // 元素值相等，复制该结点并替换值
+            if (x.val == val){
+                return x;
+            }
+            return new Node(key, val, x.left, x.right);
+        }
+    }
+
+    // ***11. 删除键为key的元素
+    public synchronized void delete(Key key){
+        if (key == null) throw new IllegalArgumentException("calls delete() with a null key");
+        root = delete(root, key);
+    }
+    private Node delete(Node x, Key key){
+        if (x == null){
+            return null;
+        }
+
+        int cmp = key.compareTo(x.key);
+        if (cmp < 0){
+            Node left = delete(x.left, key);
+            if (left == x.left){
+                return x;
+            }
+            return balance(new Node(x.key, x.val, left, x.right));
+        }else if (cmp > 0){
+            Node right = delete(x.right, key);
+            if (right == x.right){
+                return x;
+            }
+            return balance(new Node(x.key, x.val, x.left, right));
+        }else {
+            if (x.left == null){
+                return x.right;
+            }else if (x.right == null){
+                return x.left;
+            }
+            // 用右子树的最小结点代替被删除的结点
+            Node s = x.right;
+            while (s.left != null){
+                s = s.left;
+            }
+            return balance(new Node(s.key, s.val, x.left, delete(x.right, s.key)));
+        }
+    }
+
+    // 结点x是新创建的，子树已经平衡，重平衡x，分四种情况，与 AVLTree 相同
+    private Node balance(Node x){
+        int balanceFactor = getBalanceFactor(x);
+        // 1. LL
+        if (balanceFactor > 1 && getBalanceFactor(x.left) >= 0){
+            return rightRotate(x);
+        }
+        // 2. RR
+        if (balanceFactor < -1 && getBalanceFactor(x.right) <= 0){
+            return leftRotate(x);
+        }
+        // 3. LR: 先对 x的左孩子 进行左旋转，再对 x 进行右旋转
+        if (balanceFactor > 1 && getBalanceFactor(x.left) < 0){
+            return rightRotate(new Node(x.key, x.val, leftRotate(x.left), x.right));
+        }
+        // 4. RL: 先对 x的右孩子 进行右旋转，再对 x 进行左旋转
+        if (balanceFactor < -1 && getBalanceFactor(x.right) > 0){
+            return leftRotate(new Node(x.key, x.val, x.left, rightRotate(x.right)));
+        }
+        return x;
+    }
+
+    // 对结点y进行向右旋转操作，返回旋转后新的根结点x'，y和x都不修改，创建新的y'和x'
+    //              y
+    //             /  \                                 x'
+    //            x    T4     向右旋转 (y)             /   \
+    //           / \        - - - - - - - ->         z     y'
+    //          z   T3                             /  \   /  \
+    //         / \                                T1  T2 T3  T4
+    //       T1  T2
+    private Node rightRotate(Node y){
+        Node x = y.left;
+        // 先创建y'，再创建x'，因为x'的高度值计算依赖其孩子y'的高度
+        Node newY = new Node(y.key, y.val, x.right, y.right);
+        return new Node(x.key, x.val, x.left, newY);
+    }
+
+    // 对结点y进行向左旋转操作，返回旋转后新的根结点x'
+    //     y
+    //   /  \                                    x'
+    //  T1    x           向左旋转 (y)          /   \
+    //       / \        - - - - - - - ->      y'    z
+    //     T2   z                           /  \   /  \
+    //         /  \                        T1  T2 T3  T4
+    //       T3   T4
+    private Node leftRotate(Node y){
+        Node x = y.right;
+        Node newY = new Node(y.key, y.val, y.left, x.left);
+        return new Node(x.key, x.val, newY, x.right);
+    }
+
+    // 判断是否是平衡的二叉搜索树，并检查height和N
+    public boolean check(){
+        return check(root, null, null);
+    }
+
+    private boolean check(Node x, Key lo, Key hi){
+        if (x == null){
+            return true;
+        }
+        if (lo != null && x.key.compareTo(lo) <= 0) return false;
+        if (hi != null && x.key.compareTo(hi) >= 0) return false;
+        if (Math.abs(getBalanceFactor(x)) > 1) return false;
+        if (x.height != 1 + Math.max(getHeight(x.left), getHeight(x.right))) return false;
+        if (x.N != 1 + size(x.left) + size(x.right)) return false;
+        return check(x.left, lo, x.key) && check(x.right, x.key, hi);
+    }
+}
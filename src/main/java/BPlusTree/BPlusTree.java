@@ -0,0 +1,717 @@
+package BPlusTree;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * 内存中的B+树有序符号表，API与 BST 相同
+ *
+ * (1) 每个结点最多存放M个键（默认128），树高为 log_{M/2}(N)，1亿个键只有4~5层，
+ *     而二叉树约27层，每层都是一次依赖上一层结果的缓存未命中
+ * (2) 键和值都放在叶子结点中，按键有序存放在连续的数组里，结点内用二分查找；
+ *     内部结点只存放分隔键和孩子，keys[i] (i >= 1) 不大于孩子i中的所有键，且大于孩子i-1中的所有键
+ * (3) 内部结点中保存每个孩子的子树大小counts[]，rank/select 只访问查找路径上的结点，O(M·logN)
+ * (4) 叶子结点用双向链表连接起来，范围查询找到起点之后沿链表顺序扫描
+ * (5) 除根结点外，每个结点至少有 M/2 个键（孩子），插入时满了就分裂成两半，删除后不足时向兄弟借或与兄弟合并
+ *
+ * 每个条目的开销约为两个数组槽位（键、值各一个引用），而 BST 中每个条目是一个带对象头的Node
+ */
+public class BPlusTree<Key extends Comparable<Key>, Value> {
+    private static final int DEFAULT_M = 128;
+
+    private final int M;          // 每个结点最多的键（孩子）数
+    private final int minKeys;    // 非根结点最少的键（孩子）数
+    private Node root;
+    private int N = 0;            // 键值对总数
+
+    // put/delete 递归时用于向上层传递结果
+    private boolean added;        // put 是否新增了一个键
+    private Key splitKey;         // 结点分裂时新结点的分隔键
+
+    private abstract class Node{
+        final boolean leaf;
+        int n;                    // 键（叶子结点）或孩子（内部结点）的数量
+        Key[] keys;               // 数组多留一个位置，插入后先超出再分裂
+
+        Node(boolean leaf){
+            this.leaf = leaf;
+        }
+    }
+
+    private class Leaf extends Node{
+        Value[] vals;
+        Leaf prev, next;          // 相邻的叶子结点
+
+        @SuppressWarnings("unchecked")
+        Leaf(){
+            super(true);
+            keys = (Key[]) new Comparable[M + 1];
+            vals = (Value[]) new Object[M + 1];
+        }
+    }
+
+    private class Internal extends Node{
+        Node[] children;
+        int[] counts;             // counts[i] 为孩子i的子树中键的数量，keys[0]不使用
+
+        @SuppressWarnings("unchecked")
+        Internal(){
+            super(false);
+            keys = (Key[]) new Comparable[M + 1];
+            children = new BPlusTree.Node[M + 1];
+            counts = new int[M + 1];
+        }
+    }
+
+    public BPlusTree(int M){
+        if (M < 4) throw new IllegalArgumentException("node capacity must be at least 4: " + M);
+        this.M = M;
+        this.minKeys = M / 2;
+        this.root = new Leaf();
+    }
+
+    public BPlusTree(){
+        this(DEFAULT_M);
+    }
+
+    public int size(){
+        return N;
+    }
+
+    public boolean isEmpty(){
+        return N == 0;
+    }
+
+    // 树的层数，只有一个叶子结点时为1
+    public int height(){
+        int h = 1;
+        for (Node x = root; !x.leaf; x = ((Internal) x).children[0]) {
+            h++;
+        }
+        return h;
+    }
+
+    // 子树中键的数量：叶子结点为n，内部结点为各孩子counts之和
+    private int size(Node x){
+        if (x.leaf){
+            return x.n;
+        }
+        int[] counts = ((Internal) x).counts;
+        int s = 0;
+        for (int i = 0; i < x.n; i++) {
+            s += counts[i];
+        }
+        return s;
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 结点内查找：二分查找
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    // 叶子结点中查找key：找到时返回下标，否则返回 -(插入位置) - 1
+    private int search(Leaf x, Key key){
+        int lo = 0, hi = x.n - 1;
+        while (lo <= hi){
+            int mid = (lo + hi) >>> 1;
+            int cmp = key.compareTo(x.keys[mid]);
+            if (cmp < 0){
+                hi = mid - 1;
+            }else if (cmp > 0){
+                lo = mid + 1;
+            }else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    // 内部结点中key所在的孩子：最后一个分隔键不大于key的孩子，没有时为孩子0
+    private int childIndex(Internal x, Key key){
+        int lo = 1, hi = x.n - 1;
+        while (lo <= hi){
+            int mid = (lo + hi) >>> 1;
+            if (key.compareTo(x.keys[mid]) < 0){
+                hi = mid - 1;
+            }else {
+                lo = mid + 1;
+            }
+        }
+        return hi;
+    }
+
+    // key所在的叶子结点
+    private Leaf leafOf(Key key){
+        Node x = root;
+        while (!x.leaf){
+            Internal in = (Internal) x;
+            x = in.children[childIndex(in, key)];
+        }
+        return (Leaf) x;
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 有序符号表API
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    // ***1. 查找Key=key元素的值，不存在时返回null
+    public Value get(Key key){
+        if (key == null) throw new IllegalArgumentException("calls get() with a null key");
+        Leaf x = leafOf(key);
+        int i = search(x, key);
+        return i >= 0 ? x.vals[i] : null;
+    }
+
+    public boolean contains(Key key){
+        if (key == null) throw new IllegalArgumentException("calls contains() with a null key");
+        Leaf x = leafOf(key);
+        return search(x, key) >= 0;
+    }
+
+    // ***2. 插入键值对key-val。如果已存在，仅更新值
+    public void put(Key key, Value val){
+        if (key == null) throw new IllegalArgumentException("calls put() with a null key");
+        added = false;
+        Node sibling = put(root, key, val);
+        if (sibling != null){
+            // 根结点分裂，树长高一层
+            Internal r = new Internal();
+            r.children[0] = root;
+            r.children[1] = sibling;
+            r.keys[1] = splitKey;
+            r.counts[0] = size(root);
+            r.counts[1] = size(sibling);
+            r.n = 2;
+            root = r;
+        }
+        if (added){
+            N++;
+        }
+    }
+
+    // 返回分裂出的右半部分（同时设置splitKey），没有分裂时返回null
+    private Node put(Node x, Key key, Value val){
+        if (x.leaf){
+            Leaf leaf = (Leaf) x;
+            int i = search(leaf, key);
+            if (i >= 0){
+                // 元素值相等，仅更新树中已存在元素的值
+                leaf.vals[i] = val;
+                return null;
+            }
+            i = -(i + 1);
+            System.arraycopy(leaf.keys, i, leaf.keys, i + 1, leaf.n - i);
+            System.arraycopy(leaf.vals, i, leaf.vals, i + 1, leaf.n - i);
+            leaf.keys[i] = key;
+            leaf.vals[i] = val;
+            leaf.n++;
+            added = true;
+            return leaf.n > M ? splitLeaf(leaf) : null;
+        }
+
+        Internal in = (Internal) x;
+        int i = childIndex(in, key);
+        Node sibling = put(in.children[i], key, val);
+        if (added){
+            in.counts[i]++;
+        }
+        if (sibling == null){
+            return null;
+        }
+
+        // 孩子i分裂：在i+1处插入新孩子
+        System.arraycopy(in.keys, i + 1, in.keys, i + 2, in.n - i - 1);
+        System.arraycopy(in.children, i + 1, in.children, i + 2, in.n - i - 1);
+        System.arraycopy(in.counts, i + 1, in.counts, i + 2, in.n - i - 1);
+        in.keys[i + 1] = splitKey;
+        in.children[i + 1] = sibling;
+        in.counts[i] = size(in.children[i]);
+        in.counts[i + 1] = size(sibling);
+        in.n++;
+        return in.n > M ? splitInternal(in) : null;
+    }
+
+    // 叶子结点分裂：后一半移到新结点中，新结点的第一个键作为分隔键
+    private Leaf splitLeaf(Leaf x){
+        int h = x.n / 2;
+        Leaf y = new Leaf();
+        y.n = x.n - h;
+        System.arraycopy(x.keys, h, y.keys, 0, y.n);
+        System.arraycopy(x.vals, h, y.vals, 0, y.n);
+        for (int i = h; i < x.n; i++) {
+            x.keys[i] = null;
+            x.vals[i] = null;
+        }
+        x.n = h;
+
+        y.next = x.next;
+        if (y.next != null){
+            y.next.prev = y;
+        }
+        y.prev = x;
+        x.next = y;
+        splitKey = y.keys[0];
+        return y;
+    }
+
+    // 内部结点分裂：孩子h..n-1移到新结点中，keys[h]上移到父结点作为分隔键
+    private Internal splitInternal(Internal x){
+        int h = x.n / 2;
+        Internal y = new Internal();
+        y.n = x.n - h;
+        System.arraycopy(x.keys, h + 1, y.keys, 1, y.n - 1);
+        System.arraycopy(x.children, h, y.children, 0, y.n);
+        System.arraycopy(x.counts, h, y.counts, 0, y.n);
+        splitKey = x.keys[h];
+        for (int i = h; i < x.n; i++) {
+            x.keys[i] = null;
+            x.children[i] = null;
+            x.counts[i] = 0;
+        }
+        x.n = h;
+        return y;
+    }
+
+    // ***11. 删除键为key的元素
+    public void delete(Key key){
+        if (key == null) throw new IllegalArgumentException("calls delete() with a null key");
+        if (!delete(root, key)){
+            return;
+        }
+        N--;
+        // 根结点只剩一个孩子时，树降低一层
+        if (!root.leaf && root.n == 1){
+            root = ((Internal) root).children[0];
+        }
+    }
+
+    // 返回是否删除了key
+    private boolean delete(Node x, Key key){
+        if (x.leaf){
+            Leaf leaf = (Leaf) x;
+            int i = search(leaf, key);
+            if (i < 0){
+                return false;
+            }
+            System.arraycopy(leaf.keys, i + 1, leaf.keys, i, leaf.n - i - 1);
+            System.arraycopy(leaf.vals, i + 1, leaf.vals, i, leaf.n - i - 1);
+            leaf.n--;
+            leaf.keys[leaf.n] = null;
+            leaf.vals[leaf.n] = null;
+            // 删除的是第一个键时父结点中的分隔键不需要修改：它仍然不大于该叶子结点中的所有键
+            return true;
+        }
+
+        Internal in = (Internal) x;
+        int i = childIndex(in, key);
+        if (!delete(in.children[i], key)){
+            return false;
+        }
+        in.counts[i]--;
+        if (in.children[i].n < minKeys){
+            fix(in, i);
+        }
+        return true;
+    }
+
+    // 孩子i的键（孩子）不足：兄弟结点有富余时借一个，否则与兄弟合并
+    private void fix(Internal x, int i){
+        if (i > 0 && x.children[i - 1].n > minKeys){
+            borrowFromLeft(x, i);
+        }else if (i + 1 < x.n && x.children[i + 1].n > minKeys){
+            borrowFromRight(x, i);
+        }else if (i > 0){
+            merge(x, i - 1);
+        }else {
+            merge(x, i);
+        }
+    }
+
+    // 把左兄弟的最后一个键（孩子）移到孩子i的开头
+    private void borrowFromLeft(Internal x, int i){
+        Node c = x.children[i], l = x.children[i - 1];
+        if (c.leaf){
+            Leaf cl = (Leaf) c, ll = (Leaf) l;
+            System.arraycopy(cl.keys, 0, cl.keys, 1, cl.n);
+            System.arraycopy(cl.vals, 0, cl.vals, 1, cl.n);
+            cl.keys[0] = ll.keys[ll.n - 1];
+            cl.vals[0] = ll.vals[ll.n - 1];
+            ll.keys[ll.n - 1] = null;
+            ll.vals[ll.n - 1] = null;
+            ll.n--;
+            cl.n++;
+            x.keys[i] = cl.keys[0];
+            x.counts[i - 1]--;
+            x.counts[i]++;
+        }else {
+            Internal ci = (Internal) c, li = (Internal) l;
+            int moved = li.counts[li.n - 1];
+            System.arraycopy(ci.keys, 1, ci.keys, 2, ci.n - 1);
+            System.arraycopy(ci.children, 0, ci.children, 1, ci.n);
+            System.arraycopy(ci.counts, 0, ci.counts, 1, ci.n);
+            // 原来的分隔键下移，左兄弟的最后一个分隔键上移
+            ci.keys[1] = x.keys[i];
+            ci.children[0] = li.children[li.n - 1];
+            ci.counts[0] = moved;
+            x.keys[i] = li.keys[li.n - 1];
+            li.keys[li.n - 1] = null;
+            li.children[li.n - 1] = null;
+            li.counts[li.n - 1] = 0;
+            li.n--;
+            ci.n++;
+            x.counts[i - 1] -= moved;
+            x.counts[i] += moved;
+        }
+    }
+
+    // 把右兄弟的第一个键（孩子）移到孩子i的末尾
+    private void borrowFromRight(Internal x, int i){
+        Node c = x.children[i], r = x.children[i + 1];
+        if (c.leaf){
+            Leaf cl = (Leaf) c, rl = (Leaf) r;
+            cl.keys[cl.n] = rl.keys[0];
+            cl.vals[cl.n] = rl.vals[0];
+            cl.n++;
+            System.arraycopy(rl.keys, 1, rl.keys, 0, rl.n - 1);
+            System.arraycopy(rl.vals, 1, rl.vals, 0, rl.n - 1);
+            rl.n--;
+            rl.keys[rl.n] = null;
+            rl.vals[rl.n] = null;
+            x.keys[i + 1] = rl.keys[0];
+            x.counts[i]++;
+            x.counts[i + 1]--;
+        }else {
+            Internal ci = (Internal) c, ri = (Internal) r;
+            int moved = ri.counts[0];
+            ci.keys[ci.n] = x.keys[i + 1];
+            ci.children[ci.n] = ri.children[0];
+            ci.counts[ci.n] = moved;
+            ci.n++;
+            x.keys[i + 1] = ri.keys[1];
+            System.arraycopy(ri.keys, 2, ri.keys, 1, ri.n - 2);
+            System.arraycopy(ri.children, 1, ri.children, 0, ri.n - 1);
+            System.arraycopy(ri.counts, 1, ri.counts, 0, ri.n - 1);
+            ri.n--;
+            ri.keys[ri.n] = null;
+            ri.children[ri.n] = null;
+            ri.counts[ri.n] = 0;
+            x.counts[i] += moved;
+            x.counts[i + 1] -= moved;
+        }
+    }
+
+    // 把孩子i+1合并到孩子i中，并从x中删除孩子i+1
+    private void merge(Internal x, int i){
+        Node l = x.children[i], r = x.children[i + 1];
+        if (l.leaf){
+            Leaf ll = (Leaf) l, rl = (Leaf) r;
+            System.arraycopy(rl.keys, 0, ll.keys, ll.n, rl.n);
+            System.arraycopy(rl.vals, 0, ll.vals, ll.n, rl.n);
+            ll.n += rl.n;
+            ll.next = rl.next;
+            if (ll.next != null){
+                ll.next.prev = ll;
+            }
+        }else {
+            Internal li = (Internal) l, ri = (Internal) r;
+            // 两者之间的分隔键下移
+            li.keys[li.n] = x.keys[i + 1];
+            System.arraycopy(ri.keys, 1, li.keys, li.n + 1, ri.n - 1);
+            System.arraycopy(ri.children, 0, li.children, li.n, ri.n);
+            System.arraycopy(ri.counts, 0, li.counts, li.n, ri.n);
+            li.n += ri.n;
+        }
+        x.counts[i] += x.counts[i + 1];
+        System.arraycopy(x.keys, i + 2, x.keys, i + 1, x.n - i - 2);
+        System.arraycopy(x.children, i + 2, x.children, i + 1, x.n - i - 2);
+        System.arraycopy(x.counts, i + 2, x.counts, i + 1, x.n - i - 2);
+        x.n--;
+        x.keys[x.n] = null;
+        x.children[x.n] = null;
+        x.counts[x.n] = 0;
+    }
+
+    private Leaf firstLeaf(){
+        Node x = root;
+        while (!x.leaf){
+            x = ((Internal) x).children[0];
+        }
+        return (Leaf) x;
+    }
+
+    private Leaf lastLeaf(){
+        Node x = root;
+        while (!x.leaf){
+            x = ((Internal) x).children[x.n - 1];
+        }
+        return (Leaf) x;
+    }
+
+    // ***3. 返回最小键
+    public Key min(){
+        if (isEmpty()){
+            return null;
+        }
+        return firstLeaf().keys[0];
+    }
+
+    // 4. 返回最大键
+    public Key max(){
+        if (isEmpty()){
+            return null;
+        }
+        Leaf x = lastLeaf();
+        return x.keys[x.n - 1];
+    }
+
+    // ***5. 向下取整：小于等于key的最大键
+    public Key floor(Key key){
+        if (key == null) throw new IllegalArgumentException("calls floor() with a null key");
+        Leaf x = leafOf(key);
+        int i = search(x, key);
+        if (i >= 0){
+            return x.keys[i];
+        }
+        i = -(i + 1) - 1;
+        if (i >= 0){
+            return x.keys[i];
+        }
+        // 比该叶子结点中所有键都小，答案是前一个叶子结点的最后一个键
+        return x.prev == null ? null : x.prev.keys[x.prev.n - 1];
+    }
+
+    // 6. 向上取整：大于等于key的最小键
+    public Key ceiling(Key key){
+        if (key == null) throw new IllegalArgumentException("calls ceiling() with a null key");
+        Leaf x = leafOf(key);
+        int i = search(x, key);
+        if (i >= 0){
+            return x.keys[i];
+        }
+        i = -(i + 1);
+        if (i < x.n){
+            return x.keys[i];
+        }
+        return x.next == null ? null : x.next.keys[0];
+    }
+
+    // ***7. 找到排名为k的键：即树中正好有k个小于它的键
+    public Key select(int k){
+        if (k < 0 || k >= N){
+            return null;
+        }
+        Node x = root;
+        while (!x.leaf){
+            Internal in = (Internal) x;
+            int i = 0;
+            while (k >= in.counts[i]){
+                k -= in.counts[i];
+                i++;
+            }
+            x = in.children[i];
+        }
+        return x.keys[k];
+    }
+
+    // ***8. 返回给定键的排名：树中小于key的键的数量，与select互逆
+    public int rank(Key key){
+        if (key == null) throw new IllegalArgumentException("calls rank() with a null key");
+        int r = 0;
+        Node x = root;
+        while (!x.leaf){
+            Internal in = (Internal) x;
+            int i = childIndex(in, key);
+            for (int j = 0; j < i; j++) {
+                r += in.counts[j];
+            }
+            x = in.children[i];
+        }
+        int i = search((Leaf) x, key);
+        return r + (i >= 0 ? i : -(i + 1));
+    }
+
+    // ***9. 删除最小元素
+    public void deleteMin(){
+        if (isEmpty()) throw new NoSuchElementException("Symbol table underflow");
+        delete(min());
+    }
+
+    // 10. 删除最大元素
+    public void deleteMax(){
+        if (isEmpty()) throw new NoSuchElementException("Symbol table underflow");
+        delete(max());
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 范围查询：找到lo所在的叶子结点后沿叶子链表扫描
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    // [lo, hi]之间的键的数量
+    public int size(Key lo, Key hi){
+        if (lo == null || hi == null) throw new IllegalArgumentException("calls size() with a null key");
+        if (lo.compareTo(hi) > 0){
+            return 0;
+        }
+        if (contains(hi)){
+            return rank(hi) - rank(lo) + 1;
+        }else {
+            return rank(hi) - rank(lo);
+        }
+    }
+
+    // 所有的键，从小到大
+    public Iterable<Key> keys(){
+        if (isEmpty()){
+            return Collections.emptyList();
+        }
+        return keys(min(), max());
+    }
+
+    // [lo, hi]之间的键，从小到大
+    public Iterable<Key> keys(Key lo, Key hi){
+        checkRange(lo, hi);
+        return () -> new RangeIterator<Key>(lo, hi, false);
+    }
+
+    // [lo, hi]之间的键值对，从小到大
+    public Iterable<Map.Entry<Key, Value>> entries(Key lo, Key hi){
+        checkRange(lo, hi);
+        return () -> new RangeIterator<Map.Entry<Key, Value>>(lo, hi, true);
+    }
+
+    private void checkRange(Key lo, Key hi){
+        if (lo == null) throw new IllegalArgumentException("first argument to keys() is null");
+        if (hi == null) throw new IllegalArgumentException("second argument to keys() is null");
+    }
+
+    private class RangeIterator<T> implements Iterator<T> {
+        private final Key hi;
+        private final boolean entries;
+        private Leaf leaf;
+        private int i;
+
+        RangeIterator(Key lo, Key hi, boolean entries){
+            this.hi = hi;
+            this.entries = entries;
+            leaf = leafOf(lo);
+            i = search(leaf, lo);
+            if (i < 0){
+                i = -(i + 1);
+            }
+            skipEmpty();
+        }
+
+        // 当前叶子结点已经扫描完时移到下一个叶子结点
+        private void skipEmpty(){
+            while (leaf != null && i >= leaf.n){
+                leaf = leaf.next;
+                i = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext(){
+            return leaf != null && leaf.keys[i].compareTo(hi) <= 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next(){
+            if (!hasNext()) throw new NoSuchElementException();
+            Key key = leaf.keys[i];
+            Value val = leaf.vals[i];
+            i++;
+            skipEmpty();
+            return entries ? (T) new AbstractMap.SimpleImmutableEntry<>(key, val) : (T) key;
+        }
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 检查：键有序、分隔键正确、结点的键数在 [M/2, M] 之间（根结点除外）、counts正确、所有叶子在同一层、叶子链表完整
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    public boolean isBPlusTree(){
+        Checker c = new Checker();
+        if (c.check(root, null, null, 1, height()) != N){
+            return false;
+        }
+        return c.prev == lastLeaf() && c.prev.next == null;
+    }
+
+    // 一次检查的状态：prev为中序遍历中上一个叶子结点，用来核对叶子链表
+    private final class Checker {
+        private Leaf prev;
+
+        // 返回子树中键的数量，不满足条件时返回-1
+        int check(Node x, Key lo, Key hi, int depth, int height){
+            if (x != root && x.n < minKeys || x.n > M){
+                return -1;
+            }
+            if (x.leaf){
+                Leaf leaf = (Leaf) x;
+                if (depth != height || leaf.prev != prev || (prev != null && prev.next != leaf)){
+                    return -1;
+                }
+                for (int i = 0; i < leaf.n; i++) {
+                    if (i > 0 && leaf.keys[i - 1].compareTo(leaf.keys[i]) >= 0) return -1;
+                    if (lo != null && leaf.keys[i].compareTo(lo) < 0) return -1;
+                    if (hi != null && leaf.keys[i].compareTo(hi) >= 0) return -1;
+                }
+                prev = leaf;
+                return leaf.n;
+            }
+            Internal in = (Internal) x;
+            if (in.n < 2){
+                return -1;
+            }
+            int total = 0;
+            for (int i = 0; i < in.n; i++) {
+                Key clo = i == 0 ? lo : in.keys[i];
+                Key chi = i == in.n - 1 ? hi : in.keys[i + 1];
+                int s = check(in.children[i], clo, chi, depth + 1, height);
+                if (s < 0 || s != in.counts[i]){
+                    return -1;
+                }
+                total += s;
+            }
+            return total;
+        }
+    }
+
+    public static void main(String[] args){
+        BPlusTree<String, Integer> st = new BPlusTree<String, Integer>(4);
+        String[] keys = "S E A R C H E X A M P L E".split(" ");
+        for (int i = 0; i < keys.length; i++) {
+            st.put(keys[i], i);
+        }
+        for (Map.Entry<String, Integer> e : st.entries("A", "Z")) {
+            System.out.println(e.getKey() + " -> " + e.getValue());
+        }
+
+        System.out.println("st.size() = " + st.size() + ", st.height() = " + st.height());
+        System.out.println("st.get(\"M\") = " + st.get("M"));
+        System.out.println("st.min() = " + st.min());
+        System.out.println("st.max() = " + st.max());
+        System.out.println("st.floor(\"G\") = " + st.floor("G"));
+        System.out.println("st.ceiling(\"Q\") = " + st.ceiling("Q"));
+        System.out.println("st.select(8) = " + st.select(8));
+        System.out.println("st.rank(\"R\") = " + st.rank("R"));
+        System.out.println("st.size(\"C\", \"R\") = " + st.size("C", "R"));
+
+        st.deleteMin();
+        st.deleteMax();
+        st.delete("P");
+        System.out.println("---------after deleteMin, deleteMax, delete P--------");
+        for (String key : st.keys()) {
+            System.out.print(key + " ");
+        }
+        System.out.println();
+        System.out.println("st.isBPlusTree() = " + st.isBPlusTree());
+    }
+}
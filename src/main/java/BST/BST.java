@@ -1,14 +1,31 @@
 package BST;
 
+import Snapshot.Codec;
+import Snapshot.SnapshotFile;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class BST<Key extends Comparable<Key>, Value> {
     // 二叉查找树的根结点
     private Node root;
 
-    // 私有类：表示树上结点的数据结构
-    private class Node{
+    // 私有类：表示树上结点的数据结构；实现Map.Entry，范围迭代entries时直接返回结点，不另外创建对象
+    private class Node implements Map.Entry<Key, Value>{
         private Key key;              // 键
         private Value val;            // 值
         private Node left, right;     // 指向子树的链接
@@ -24,6 +41,23 @@ public class BST<Key extends Comparable<Key>, Value> {
             this.val = val;
             this.N = N;
         }
+
+        @Override
+        public Key getKey(){
+            return key;
+        }
+
+        @Override
+        public Value getValue(){
+            return val;
+        }
+
+        @Override
+        public Value setValue(Value val){
+            Value old = this.val;
+            this.val = val;
+            return old;
+        }
     }
 
     public int size(){
@@ -40,74 +74,104 @@ public class BST<Key extends Comparable<Key>, Value> {
 
     /**
      * -----------------------------------------------------------------------------------------------------------------
-     * 递归
+     * 有序符号表API：全部用循环实现，不使用递归
+     * BST不做平衡，有序插入时树会退化为链表，递归实现在深度达到几千时就会StackOverflowError，
+     * 循环实现的深度只受堆大小限制。put/delete需要维护路径上的结点计数N：
+     * 先确认键是否存在（存在与否决定路径上的N是否改变），再从根结点向下走一遍修改N
      * -----------------------------------------------------------------------------------------------------------------
     */
-    // ***1. 查找Key=key元素的值
+    // ***1. 查找Key=key元素的值，不存在时返回null
     public Value get(Key key){
-        return get(root, key).val;
+        Node x = getNode(key);
+        return x == null ? null : x.val;
     }
-    private Node get(Node x, Key key){
+
+    public boolean contains(Key key){
+        return getNode(key) != null;
+    }
+
+    private Node getNode(Key key){
         if (key == null){
             throw new IllegalArgumentException("calls get() with a null key");
         }
-        if (x == null){
-            return null;
-        }
-
-        int cmp = key.compareTo(x.key);
-        if (cmp < 0){
-            return get(x.left, key);
-        }else if (cmp > 0){
-            return get(x.right, key);
-        }else {
-            return x;
+        Node x = root;
+        while (x != null){
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0){
+                x = x.left;
+            }else if (cmp > 0){
+                x = x.right;
+            }else {
+                return x;
+            }
         }
+        return null;
     }
 
     // ***2. 插入键值对key-val。如果已存在，仅更新值
     public void put(Key key, Value val){
-        root = put(root, key, val);
-    }
-    private Node put(Node x, Key key, Value val){
         if (key == null) throw new IllegalArgumentException("calls put() with a null key");
-        if (x == null){
-            return new Node(key, val, 1);
+        if (root == null){
+            root = new Node(key, val, 1);
+            return;
+        }
+
+        // 第一遍：查找key，已存在则仅更新值，路径上的N不变；否则记下新结点的父结点
+        Node parent = null;
+        Node x = root;
+        int cmp = 0;
+        while (x != null){
+            cmp = key.compareTo(x.key);
+            if (cmp == 0){
+                // 元素值相等，仅更新树中已存在元素的值
+                x.val = val;
+                return;
+            }
+            parent = x;
+            x = cmp < 0 ? x.left : x.right;
+        }
+
+        // 第二遍：从根结点走到父结点，路径上每个结点的子树都多了一个结点
+        x = root;
+        while (x != parent){
+            x.N++;
+            x = key.compareTo(x.key) < 0 ? x.left : x.right;
         }
+        parent.N++;
 
-        int cmp = key.compareTo(x.key);
         if (cmp < 0){
-            x.left = put(x.left, key, val);
-        }else if (cmp > 0){
-            x.right = put(x.right, key, val);
+            parent.left = new Node(key, val, 1);
         }else {
-            // 元素值相等，仅更新树中已存在元素的值
-            x.val = val;
+            parent.right = new Node(key, val, 1);
         }
-        x.N = size(x.left) + size(x.right) + 1;
-        return x;
     }
 
     // ***3. 返回最小键
     public Key min(){
+        if (root == null){
+            return null;
+        }
         return min(root).key;
     }
     private Node min(Node x){
-        if (x.left == null){
-            return x;
+        while (x.left != null){
+            x = x.left;
         }
-        return min(x.left);
+        return x;
     }
 
     // 4. 返回最大键
     public Key max(){
+        if (root == null){
+            return null;
+        }
         return max(root).key;
     }
     private Node max(Node x){
-        if (x.right == null){
-            return x;
+        while (x.right != null){
+            x = x.right;
         }
-        return min(x.right);
+        return x;
     }
 
     // ***5. 向下取整：小于等于key的最大键
@@ -120,25 +184,23 @@ public class BST<Key extends Comparable<Key>, Value> {
         }
     }
     private Node floor(Node x, Key key){
-        if (x == null){
-            return null;
-        }
-        int cmp = key.compareTo(x.key);
-        if (cmp < 0) {
-            return floor(x.left, key);
-        }else if (cmp > 0){
-            Node t = floor(x.right, key);
-            if (t == null){
-                return x;
+        // 向右走之前记下当前结点：它是目前为止小于key的最大键
+        Node best = null;
+        while (x != null){
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0) {
+                x = x.left;
+            }else if (cmp > 0){
+                best = x;
+                x = x.right;
             }else {
-                return t;
+                return x;
             }
-        }else {
-            return x;
         }
+        return best;
     }
 
-    // 6. 向上取整
+    // 6. 向上取整：大于等于key的最小键
     public Key ceiling(Key key){
         Node x = ceiling(root, key);
         if (x != null){
@@ -148,22 +210,19 @@ public class BST<Key extends Comparable<Key>, Value> {
         }
     }
     private Node ceiling(Node x, Key key){
-        if (x == null){
-            return null;
-        }
-        int cmp = key.compareTo(x.key);
-        if (cmp > 0) {
-            return floor(x.right, key);
-        }else if (cmp < 0){
-            Node t = floor(x.left, key);
-            if (t == null){
-                return x;
+        Node best = null;
+        while (x != null){
+            int cmp = key.compareTo(x.key);
+            if (cmp > 0) {
+                x = x.right;
+            }else if (cmp < 0){
+                best = x;
+                x = x.left;
             }else {
-                return t;
+                return x;
             }
-        }else {
-            return x;
         }
+        return best;
     }
 
     // ***7. 找到排名为k的键：即树中正好有k个小于它的键
@@ -176,104 +235,287 @@ public class BST<Key extends Comparable<Key>, Value> {
         }
     }
     private Node select(Node x, int k){
-        if (x == null){
-            return null;
-        }
-        int t = size(x.left);
-        if (t == k){
-            return x;
-        }else if (t < k){
-            return select(x.right, k - t - 1);
-        }else {
-            return select(x.left, k);
+        while (x != null){
+            int t = size(x.left);
+            if (t == k){
+                return x;
+            }else if (t < k){
+                k = k - t - 1;
+                x = x.right;
+            }else {
+                x = x.left;
+            }
         }
+        return null;
     }
 
-    // ***8. 返回给定键的排名
+    // ***8. 返回给定键的排名：树中小于key的键的数量，与select互逆
     public int rank(Key key){
         return rank(root, key);
     }
     private int rank(Node x, Key key){
-        if (x == null){
-            return 0;
-        }
-        int cmp = key.compareTo(x.key);
-        if (cmp < 0){
-            return rank(x.left, key);
-        }else if (cmp > 0){
-            return rank(x.right, key) + size(x.left) + 1;
-        }else {
-            return size(x.left) + 1;
+        int r = 0;
+        while (x != null){
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0){
+                x = x.left;
+            }else if (cmp > 0){
+                r += size(x.left) + 1;
+                x = x.right;
+            }else {
+                return r + size(x.left);
+            }
         }
+        return r;
     }
 
     // ***9. 删除最小元素
     public void deleteMin(){
-        root = deleteMin(root);
-    }
-    private Node deleteMin(Node x){
-        if (x.left == null){
-            return x.right;
+        if (root == null){
+            return;
+        }
+        Node parent = null;
+        Node x = root;
+        while (x.left != null){
+            x.N--;
+            parent = x;
+            x = x.left;
+        }
+        if (parent == null){
+            root = x.right;
+        }else {
+            parent.left = x.right;
         }
-        x.left = deleteMin(x.left);
-        x.N = size(x.left) + size(x.right) + 1;
-        return x;
     }
 
     // 10. 删除最大元素
     public void deleteMax(){
-        root = deleteMax(root);
-    }
-    private Node deleteMax(Node x){
-        if (x.right == null){
-            return x.left;
+        if (root == null){
+            return;
+        }
+        Node parent = null;
+        Node x = root;
+        while (x.right != null){
+            x.N--;
+            parent = x;
+            x = x.right;
+        }
+        if (parent == null){
+            root = x.left;
+        }else {
+            parent.right = x.left;
         }
-        x.right = deleteMin(x.right);
-        x.N = size(x.left) + size(x.right) + 1;
-        return x;
     }
 
-    // ***11. 删除键为key的元素
+    // ***11. 删除键为key的元素（Hibbard删除：有两个子结点时用右子树的最小结点代替）
     public void delete(Key key){
-        root = delete(root, key);
-    }
-    private Node delete(Node x, Key key){
-        if (x == null){
-            return null;
+        if (key == null) throw new IllegalArgumentException("calls delete() with a null key");
+        if (!contains(key)){
+            return;
         }
-        int cmp = key.compareTo(x.key);
-        if (cmp < 0){
-            x.left = delete(x.left, key);
-        }else if (cmp > 0){
-            x.right = delete(x.right, key);
+
+        // 从根结点走到待删除结点x，路径上每个结点的子树都少了一个结点
+        Node parent = null;
+        Node x = root;
+        int cmp;
+        while ((cmp = key.compareTo(x.key)) != 0){
+            x.N--;
+            parent = x;
+            x = cmp < 0 ? x.left : x.right;
+        }
+
+        Node replacement;
+        if (x.left == null){
+            replacement = x.right;
+        }else if (x.right == null){
+            replacement = x.left;
         }else {
-            if (x.left == null){
-                return x.right;
-            }else if (x.right == null){
-                return x.left;
-            }else {
-                Node t = x;
-                x = min(t.right);
-                x.right = deleteMin(t.right);
-                x.left = t.left;
+            // 找到后继结点s（右子树的最小结点）及其父结点，s被移走，沿途结点的N减1
+            Node sParent = x;
+            Node s = x.right;
+            while (s.left != null){
+                s.N--;
+                sParent = s;
+                s = s.left;
+            }
+            if (sParent != x){
+                sParent.left = s.right;
+                s.right = x.right;
             }
+            s.left = x.left;
+            s.N = x.N - 1;
+            replacement = s;
+        }
+
+        if (parent == null){
+            root = replacement;
+        }else if (parent.left == x){
+            parent.left = replacement;
+        }else {
+            parent.right = replacement;
         }
-        x.N = size(x.left) + size(x.right) + 1;
-        return x;
     }
 
-    // ***12. 中序遍历（有序）
+    // ***12. 中序遍历（有序）：用栈模拟递归
     public void print(Node x){
-        if (x == null){
-            return;
+        Deque<Node> stack = new ArrayDeque<>();
+        while (x != null || !stack.isEmpty()){
+            while (x != null){
+                stack.push(x);
+                x = x.left;
+            }
+            x = stack.pop();
+            System.out.println(x.key + " -> " + x.val);
+            x = x.right;
         }
-        print(x.left);
-        System.out.println(x.key + " -> " + x.val);
-        print(x.right);
     }
 
 
 
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 范围查询
+     * size(lo, hi) 由两次rank得到，O(logN)，不遍历区间内的结点
+     * keys/entries 返回惰性的迭代器：栈中只保存从根到当前结点的路径，每次next()才向后走一步，
+     * 区间外的子树不会被访问。分页时用 select(offset) 作为lo，不需要把整棵树复制出来
+     * 迭代过程中修改树，迭代结果是未定义的
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    // ***14. [lo, hi]之间的键的数量
+    public int size(Key lo, Key hi){
+        if (lo == null || hi == null) throw new IllegalArgumentException("calls size() with a null key");
+        if (lo.compareTo(hi) > 0){
+            return 0;
+        }
+        if (contains(hi)){
+            return rank(hi) - rank(lo) + 1;
+        }else {
+            return rank(hi) - rank(lo);
+        }
+    }
+
+    // ***15. 所有的键，从小到大
+    public Iterable<Key> keys(){
+        if (root == null){
+            return Collections.emptyList();
+        }
+        return keys(min(), max());
+    }
+
+    // [lo, hi]之间的键，从小到大
+    public Iterable<Key> keys(Key lo, Key hi){
+        checkRange(lo, hi);
+        return () -> new RangeIterator<Key>(lo, hi, false, false);
+    }
+
+    // [lo, hi]之间的键值对，从小到大
+    public Iterable<Map.Entry<Key, Value>> entries(Key lo, Key hi){
+        checkRange(lo, hi);
+        return () -> new RangeIterator<Map.Entry<Key, Value>>(lo, hi, false, true);
+    }
+
+    // [lo, hi]之间的键，从大到小
+    public Iterable<Key> descendingKeys(Key lo, Key hi){
+        checkRange(lo, hi);
+        return () -> new RangeIterator<Key>(lo, hi, true, false);
+    }
+
+    // [lo, hi]之间的键值对，从大到小
+    public Iterable<Map.Entry<Key, Value>> descendingEntries(Key lo, Key hi){
+        checkRange(lo, hi);
+        return () -> new RangeIterator<Map.Entry<Key, Value>>(lo, hi, true, true);
+    }
+
+    private void checkRange(Key lo, Key hi){
+        if (lo == null) throw new IllegalArgumentException("first argument to keys() is null");
+        if (hi == null) throw new IllegalArgumentException("second argument to keys() is null");
+    }
+
+    /**
+     * 中序遍历的迭代器（用栈模拟递归），descending为true时为反向中序遍历
+     * 正向：栈中为当前结点的左路径上不小于lo的结点，弹出的结点大于hi时结束
+     * 反向：栈中为当前结点的右路径上不大于hi的结点，弹出的结点小于lo时结束
+     * */
+    private class RangeIterator<T> implements Iterator<T> {
+        private final Key lo, hi;
+        private final boolean descending;
+        private final boolean entries;      // 返回结点（键值对）还是键
+        private final Deque<Node> stack = new ArrayDeque<>();
+        private Node next;
+
+        RangeIterator(Key lo, Key hi, boolean descending, boolean entries){
+            this.lo = lo;
+            this.hi = hi;
+            this.descending = descending;
+            this.entries = entries;
+            if (descending){
+                pushRight(root);
+            }else {
+                pushLeft(root);
+            }
+            advance();
+        }
+
+        private void pushLeft(Node x){
+            while (x != null){
+                if (x.key.compareTo(lo) < 0){
+                    x = x.right;
+                }else {
+                    stack.push(x);
+                    x = x.left;
+                }
+            }
+        }
+
+        private void pushRight(Node x){
+            while (x != null){
+                if (x.key.compareTo(hi) > 0){
+                    x = x.left;
+                }else {
+                    stack.push(x);
+                    x = x.right;
+                }
+            }
+        }
+
+        private void advance(){
+            next = null;
+            if (stack.isEmpty()){
+                return;
+            }
+            Node x = stack.pop();
+            if (descending){
+                if (x.key.compareTo(lo) < 0){
+                    stack.clear();
+                    return;
+                }
+                pushRight(x.left);
+            }else {
+                if (x.key.compareTo(hi) > 0){
+                    stack.clear();
+                    return;
+                }
+                pushLeft(x.right);
+            }
+            next = x;
+        }
+
+        @Override
+        public boolean hasNext(){
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next(){
+            if (next == null) throw new NoSuchElementException();
+            Node x = next;
+            advance();
+            return entries ? (T) x : (T) x.key;
+        }
+    }
+
+
     /**
      * -----------------------------------------------------------------------------------------------------------------
      * 迭代
@@ -314,6 +556,216 @@ public class BST<Key extends Comparable<Key>, Value> {
     }
 
 
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 批量构建：由有序的键值对直接构建完全平衡的树，O(n)，不需要逐个put
+     * 取中间元素为根，左半部分构建左子树，右半部分构建右子树，子树的结点计数N在构建时直接算出
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    // 并行构建时，元素个数少于该值的子树在当前线程中直接构建
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    // keys必须严格递增，vals[i]为keys[i]对应的值
+    public static <K extends Comparable<K>, V> BST<K, V> fromSorted(K[] keys, V[] vals){
+        checkSorted(keys, vals);
+        BST<K, V> st = new BST<>();
+        st.root = st.build(keys, vals, 0, keys.length - 1);
+        return st;
+    }
+
+    // 与fromSorted相同，左右两半在ForkJoinPool中并行构建
+    public static <K extends Comparable<K>, V> BST<K, V> fromSortedParallel(K[] keys, V[] vals){
+        checkSorted(keys, vals);
+        BST<K, V> st = new BST<>();
+        st.root = ForkJoinPool.commonPool().invoke(st.new BuildTask(keys, vals, 0, keys.length - 1));
+        return st;
+    }
+
+    // 从按键严格递增的迭代器构建
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<K>, V> BST<K, V> bulkLoad(Iterator<Map.Entry<K, V>> entries){
+        ArrayList<K> keys = new ArrayList<>();
+        ArrayList<V> vals = new ArrayList<>();
+        while (entries.hasNext()){
+            Map.Entry<K, V> e = entries.next();
+            keys.add(e.getKey());
+            vals.add(e.getValue());
+        }
+        return fromSorted((K[]) keys.toArray(new Comparable[0]), (V[]) vals.toArray());
+    }
+
+    private static <K extends Comparable<K>, V> void checkSorted(K[] keys, V[] vals){
+        if (keys.length != vals.length){
+            throw new IllegalArgumentException("keys and vals have different lengths");
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null){
+                throw new IllegalArgumentException("null key at index " + i);
+            }
+            if (i > 0 && keys[i - 1].compareTo(keys[i]) >= 0){
+                throw new IllegalArgumentException("keys are not strictly increasing at index " + i);
+            }
+        }
+    }
+
+    // 由keys[lo..hi]构建子树，返回子树的根结点
+    private Node build(Key[] keys, Value[] vals, int lo, int hi){
+        if (lo > hi){
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+        Node x = new Node(keys[mid], vals[mid], hi - lo + 1);
+        x.left = build(keys, vals, lo, mid - 1);
+        x.right = build(keys, vals, mid + 1, hi);
+        return x;
+    }
+
+    private class BuildTask extends RecursiveTask<Node> {
+        private static final long serialVersionUID = 1L;
+
+        private final Key[] keys;
+        private final Value[] vals;
+        private final int lo, hi;
+
+        BuildTask(Key[] keys, Value[] vals, int lo, int hi){
+            this.keys = keys;
+            this.vals = vals;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Node compute(){
+            if (hi - lo + 1 <= PARALLEL_THRESHOLD){
+                return build(keys, vals, lo, hi);
+            }
+            int mid = (lo + hi) >>> 1;
+            Node x = new Node(keys[mid], vals[mid], hi - lo + 1);
+            BuildTask left = new BuildTask(keys, vals, lo, mid - 1);
+            left.fork();
+            x.right = new BuildTask(keys, vals, mid + 1, hi).compute();
+            x.left = left.join();
+            return x;
+        }
+    }
+
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 快照：前序写出每个结点及其结点计数N，恢复时按原样重建树的形状，O(n)且不做任何比较（格式见 Snapshot.SnapshotFile）
+     * 重启时用 load 代替逐个put，省去 n 次 O(logn) 的查找
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    public void save(Path file, Codec<Key> keyCodec, Codec<Value> valCodec) throws IOException{
+        SnapshotFile.write(file, SnapshotFile.TYPE_BST, size(), out -> {
+            // 前序遍历：用栈模拟递归，先压右孩子再压左孩子
+            Deque<Node> stack = new ArrayDeque<>();
+            if (root != null){
+                stack.push(root);
+            }
+            while (!stack.isEmpty()){
+                Node x = stack.pop();
+                int flags = 0;
+                if (x.left != null) flags |= SnapshotFile.HAS_LEFT;
+                if (x.right != null) flags |= SnapshotFile.HAS_RIGHT;
+                out.writeByte(flags);
+                keyCodec.encode(x.key, out);
+                valCodec.encode(x.val, out);
+                out.writeInt(x.N);
+                if (x.right != null){
+                    stack.push(x.right);
+                }
+                if (x.left != null){
+                    stack.push(x.left);
+                }
+            }
+        });
+    }
+
+    public static <K extends Comparable<K>, V> BST<K, V> load(Path file, Codec<K> keyCodec, Codec<V> valCodec) throws IOException{
+        ByteBuffer in = SnapshotFile.open(file, SnapshotFile.TYPE_BST);
+        BST<K, V> st = new BST<>();
+        try {
+            st.root = st.restore(in, in.getInt(), keyCodec, valCodec);
+        }catch (BufferUnderflowException e){
+            throw new IOException("truncated or corrupt snapshot: " + file, e);
+        }
+        if (in.hasRemaining()){
+            throw new IOException("trailing bytes in snapshot: " + file);
+        }
+        return st;
+    }
+
+    // 按前序读出n个结点：栈中是还缺孩子的结点，pending记录它还缺哪些孩子，新结点挂在栈顶结点下面
+    private Node restore(ByteBuffer in, int n, Codec<Key> keyCodec, Codec<Value> valCodec) throws IOException{
+        ArrayList<Node> stack = new ArrayList<>();
+        ArrayList<Node> preorder = new ArrayList<>();
+        byte[] pending = new byte[64];
+        Node root = null;
+        for (int i = 0; i < n; i++) {
+            byte flags = in.get();
+            Node x = new Node(keyCodec.decode(in), valCodec.decode(in), in.getInt());
+            preorder.add(x);
+            if (root == null){
+                root = x;
+            }else if (stack.isEmpty()){
+                throw new IOException("corrupt snapshot: node " + i + " has no parent");
+            }else {
+                int t = stack.size() - 1;
+                if ((pending[t] & SnapshotFile.HAS_LEFT) != 0){
+                    stack.get(t).left = x;
+                    pending[t] &= ~SnapshotFile.HAS_LEFT;
+                }else {
+                    stack.get(t).right = x;
+                    pending[t] = 0;
+                }
+                if (pending[t] == 0){
+                    stack.remove(t);
+                }
+            }
+            if ((flags & (SnapshotFile.HAS_LEFT | SnapshotFile.HAS_RIGHT)) != 0){
+                if (stack.size() == pending.length){
+                    pending = Arrays.copyOf(pending, 2 * pending.length);
+                }
+                pending[stack.size()] = flags;
+                stack.add(x);
+            }
+        }
+        if (!stack.isEmpty() || (root != null && root.N != n)){
+            throw new IOException("corrupt snapshot: tree shape does not match size " + n);
+        }
+        verify(root, preorder);
+        return root;
+    }
+
+    // 逐个结点核对快照中的字段，否则写错或手工构造的快照会得到rank/select不对的树：
+    // 前序的逆序中孩子总在父结点之前，倒着检查 N；再中序遍历检查键严格递增
+    private void verify(Node root, ArrayList<Node> preorder) throws IOException{
+        for (int i = preorder.size() - 1; i >= 0; i--) {
+            Node x = preorder.get(i);
+            if (x.N != 1 + size(x.left) + size(x.right)){
+                throw new IOException("corrupt snapshot: node " + i + " has N=" + x.N + ", expected " + (1 + size(x.left) + size(x.right)));
+            }
+        }
+
+        ArrayList<Node> stack = new ArrayList<>();
+        Node x = root;
+        Key prev = null;
+        while (x != null || !stack.isEmpty()){
+            while (x != null){
+                stack.add(x);
+                x = x.left;
+            }
+            x = stack.remove(stack.size() - 1);
+            if (prev != null && prev.compareTo(x.key) >= 0){
+                throw new IOException("corrupt snapshot: keys out of order at " + x.key);
+            }
+            prev = x.key;
+            x = x.right;
+        }
+    }
+
+
     public static void main(String[] args){
         BST<String, Integer> st = new BST<String, Integer>();
         st.put("S", 0);
@@ -357,6 +809,17 @@ public class BST<Key extends Comparable<Key>, Value> {
 
         System.out.println("st.get_while(\"M\") = " + st.get_while("M"));
 
+        System.out.println("---------keys(\"C\", \"R\")--------");
+        System.out.println("st.size(\"C\", \"R\") = " + st.size("C", "R"));
+        for (String key : st.keys("C", "R")) {
+            System.out.print(key + " ");
+        }
+        System.out.println();
+        for (Map.Entry<String, Integer> e : st.descendingEntries("C", "R")) {
+            System.out.print(e.getKey() + "=" + e.getValue() + " ");
+        }
+        System.out.println();
+
     }
 }
 
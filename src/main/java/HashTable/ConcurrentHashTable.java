@@ -0,0 +1,227 @@
+package HashTable;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 线程安全的哈希表：读无锁，写分段加锁（lock striping）
+ *
+ * (1) 桶数组 table 中每个桶是一条单链表，结点的 val 和 next 都是 volatile，
+ *     get 只读取 table 和链表，不加任何锁
+ * (2) 写操作只锁住桶所属的段：第 i 个桶由 locks[i & (locks.length - 1)] 保护，
+ *     桶数量始终是段数量的整数倍，所以同一个桶永远由同一把锁保护，不同段的写操作互不阻塞
+ * (3) 元素个数用 LongAdder 计数，各线程累加到不同的 cell 上，不会在同一个计数器上竞争；
+ *     另外每段在自己的锁下维护本段的元素个数 counts，插入时只检查本段是否超过它那一份容量的 3/4，
+ *     不在每次插入时调用 LongAdder.sum() 遍历所有 cell
+ * (4) 元素个数超过容量的 3/4 时扩容为 2 倍：某段越过自己的阈值后才用 sum() 确认总数，
+ *     按顺序拿到所有段锁后复制出一张新表再发布，旧表中的链表保持不变，正在旧表上读的线程不受影响。
+ *     扩容时结点所在的段不变（段号取哈希值的低位），counts 不需要重新计算
+ */
+public class ConcurrentHashTable<Key, Value> {
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final int DEFAULT_CONCURRENCY = 64;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final int COUNT_STRIDE = 16;   // counts中相邻两段隔开64字节，避免伪共享
+
+    private static final class Node<K, V> {
+        final int hash;
+        final K key;
+        volatile V val;
+        volatile Node<K, V> next;
+
+        Node(int hash, K key, V val, Node<K, V> next){
+            this.hash = hash;
+            this.key = key;
+            this.val = val;
+            this.next = next;
+        }
+    }
+
+    private volatile AtomicReferenceArray<Node<Key, Value>> table;
+    private final ReentrantLock[] locks;
+    private final LongAdder size = new LongAdder();
+    private final int[] counts;                   // counts[s * COUNT_STRIDE]：第s段的元素个数，由locks[s]保护
+
+    public ConcurrentHashTable(int capacity, int concurrencyLevel){
+        int stripes = tableSizeFor(Math.max(1, concurrencyLevel));
+        int cap = Math.max(tableSizeFor(capacity), stripes);
+        this.locks = new ReentrantLock[stripes];
+        this.counts = new int[stripes * COUNT_STRIDE];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.table = new AtomicReferenceArray<>(cap);
+    }
+
+    public ConcurrentHashTable(int capacity){
+        this(capacity, DEFAULT_CONCURRENCY);
+    }
+
+    public ConcurrentHashTable(){
+        this(DEFAULT_CAPACITY, DEFAULT_CONCURRENCY);
+    }
+
+    public int size(){
+        long n = size.sum();
+        return n > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) Math.max(n, 0);
+    }
+
+    public boolean isEmpty(){
+        return size.sum() <= 0;
+    }
+
+    private static int spread(int h){
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // 不小于n的2的幂，超过 MAXIMUM_CAPACITY 时取 MAXIMUM_CAPACITY（继续左移会溢出为负数再变成0）
+    private static int tableSizeFor(int n){
+        if (n >= MAXIMUM_CAPACITY){
+            return MAXIMUM_CAPACITY;
+        }
+        int cap = 1;
+        while (cap < n){
+            cap <<= 1;
+        }
+        return cap;
+    }
+
+    // ***1. 查找：不加锁
+    public Value get(Key key){
+        if (key == null) throw new IllegalArgumentException("calls get() with a null key");
+
+        int h = spread(key.hashCode());
+        AtomicReferenceArray<Node<Key, Value>> tab = table;
+        for (Node<Key, Value> e = tab.get(h & (tab.length() - 1)); e != null; e = e.next) {
+            if (e.hash == h && key.equals(e.key)){
+                return e.val;
+            }
+        }
+        return null;
+    }
+
+    public boolean contains(Key key){
+        if (key == null) throw new IllegalArgumentException("calls contains() with a null key");
+
+        int h = spread(key.hashCode());
+        AtomicReferenceArray<Node<Key, Value>> tab = table;
+        for (Node<Key, Value> e = tab.get(h & (tab.length() - 1)); e != null; e = e.next) {
+            if (e.hash == h && key.equals(e.key)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ***2. 插入：只锁住所在的段
+    public void add(Key key, Value value){
+        if (key == null) throw new IllegalArgumentException("calls add() with a null key");
+
+        int h = spread(key.hashCode());
+        int count = -1;
+        while (true){
+            AtomicReferenceArray<Node<Key, Value>> tab = table;
+            int i = h & (tab.length() - 1);
+            int s = i & (locks.length - 1);
+            ReentrantLock lock = locks[s];
+            lock.lock();
+            try {
+                // 加锁期间表被扩容替换了，需要到新表中重试
+                if (tab != table){
+                    continue;
+                }
+                Node<Key, Value> head = tab.get(i);
+                Node<Key, Value> e = head;
+                while (e != null){
+                    if (e.hash == h && key.equals(e.key)){
+                        e.val = value;
+                        return;
+                    }
+                    e = e.next;
+                }
+                tab.set(i, new Node<>(h, key, value, head));
+                count = ++counts[s * COUNT_STRIDE];
+            } finally {
+                lock.unlock();
+            }
+
+            if (count >= 0){
+                size.increment();
+                // 本段刚越过它那一份容量的3/4时计算一次总数，之后每16次插入再确认一次；
+                // 只看本段会因为分布不均过早扩容，每次都算总数又会让写入路径遍历所有cell
+                long over = count - (long) (tab.length() / locks.length) * 3 / 4;
+                if (over > 0 && (over & (COUNT_STRIDE - 1)) == 1 && size.sum() > (long) tab.length() * 3 / 4){
+                    resize(tab);
+                }
+                return;
+            }
+        }
+    }
+
+    // ***3. 删除：只锁住所在的段
+    public Value remove(Key key){
+        if (key == null) throw new IllegalArgumentException("calls remove() with a null key");
+
+        int h = spread(key.hashCode());
+        while (true){
+            AtomicReferenceArray<Node<Key, Value>> tab = table;
+            int i = h & (tab.length() - 1);
+            int s = i & (locks.length - 1);
+            ReentrantLock lock = locks[s];
+            lock.lock();
+            try {
+                if (tab != table){
+                    continue;
+                }
+                Node<Key, Value> prev = null;
+                Node<Key, Value> e = tab.get(i);
+                while (e != null){
+                    if (e.hash == h && key.equals(e.key)){
+                        // 只修改前驱的next，正在遍历该链表的读线程仍然能沿着e.next走下去
+                        if (prev == null){
+                            tab.set(i, e.next);
+                        }else {
+                            prev.next = e.next;
+                        }
+                        counts[s * COUNT_STRIDE]--;
+                        size.decrement();
+                        return e.val;
+                    }
+                    prev = e;
+                    e = e.next;
+                }
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // 扩容：按顺序获取所有段锁（避免死锁），复制结点到新表后发布
+    private void resize(AtomicReferenceArray<Node<Key, Value>> expected){
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+        try {
+            // 其他线程已经完成了扩容；已到最大容量时不再扩容，链表变长但不影响正确性
+            if (table != expected || expected.length() >= MAXIMUM_CAPACITY){
+                return;
+            }
+            int n = expected.length();
+            AtomicReferenceArray<Node<Key, Value>> newTab = new AtomicReferenceArray<>(n * 2);
+            for (int i = 0; i < n; i++) {
+                for (Node<Key, Value> e = expected.get(i); e != null; e = e.next) {
+                    int j = e.hash & (2 * n - 1);
+                    newTab.set(j, new Node<>(e.hash, e.key, e.val, newTab.get(j)));
+                }
+            }
+            table = newTab;
+        } finally {
+            for (ReentrantLock lock : locks) {
+                lock.unlock();
+            }
+        }
+    }
+}
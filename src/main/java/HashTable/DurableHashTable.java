@@ -0,0 +1,516 @@
+package HashTable;
+
+import Snapshot.Codec;
+import Snapshot.Codecs;
+import Snapshot.SnapshotFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * 带预写日志（write-ahead log）的 HashTable：add/remove 先记日志，进程或机器崩溃后由检查点和日志恢复
+ *
+ * 目录 dir 中有两个文件：
+ *   checkpoint : 某一时刻哈希表的全部键值对（格式见 Snapshot.SnapshotFile，TYPE_HASH）
+ *   wal        : 该检查点之后的每一次修改，每条记录为 length(4) | crc32(4) | op(1) | key | val（仅PUT有val），
+ *                length 和 crc32 只针对 op 及之后的部分
+ *
+ * (1) 组提交（group commit）：修改在锁内追加到内存中的日志缓冲区并作用到哈希表，然后在锁外等待日志落盘。
+ *     第一个等待的线程成为 leader，把缓冲区中所有线程的记录一次写入文件并 fsync，其余线程等它完成即可，
+ *     并发写入越多，每次 fsync 分摊的修改越多
+ * (2) FsyncPolicy 决定 add/remove 返回前日志至少要写到哪一层：
+ *     ALWAYS   : write + fsync，返回后掉电也不会丢
+ *     INTERVAL : write，后台线程每 intervalMillis 毫秒 fsync 一次，进程崩溃不丢，掉电最多丢一个间隔
+ *     OS       : write，何时落盘由操作系统决定
+ * (3) 检查点：日志超过 checkpointBytes 后由后台线程（也可以手动调用 checkpoint()）把整张表写成新的检查点，
+ *     原子地替换旧检查点，再清空日志。写检查点之前先把缓冲区写入日志并 fsync，这样在替换和清空之间崩溃时，
+ *     日志中是检查点之前的全部修改，在检查点上按顺序重放一遍得到的仍是同一个状态。写检查点期间修改会被阻塞
+ * (4) 恢复：先载入检查点，再按顺序重放日志；遇到不完整或校验和不对的记录，说明是崩溃时没写完的尾部，
+ *     从这里截断日志，之前的记录全部有效
+ *
+ * 所有方法都是线程安全的，一把锁保护内存中的表。读到的值可能还没有落盘；值不允许为null
+ */
+public class DurableHashTable<Key, Value> implements Closeable {
+    public enum FsyncPolicy {ALWAYS, INTERVAL, OS}
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final int HEADER_BYTES = 8;                  // length + crc32
+
+    private static final long DEFAULT_INTERVAL_MILLIS = 1000;
+    private static final long DEFAULT_CHECKPOINT_BYTES = 64L << 20;
+    private static final long MAX_CHECKPOINT_BYTES = 1L << 30;  // 恢复时整个日志读入一个ByteBuffer
+
+    private final HashTable<Key, Value> table = new HashTable<>();
+    private final Codec<Key> keyCodec;
+    private final Codec<Value> valCodec;
+    private final FsyncPolicy policy;
+    private final long checkpointBytes;
+
+    private final Path checkpointFile;
+    private final FileChannel wal;
+    private final ScheduledExecutorService maintenance;
+
+    // 以下字段由 this 保护
+    private final Buffer record = new Buffer();                // 正在编码的一条记录
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final CRC32 crc = new CRC32();
+    private Buffer pending = new Buffer();                     // 已追加、还没写入文件的记录
+    private long appendedLsn;                                  // 追加过的日志总字节数，清空日志后也不回退
+    private long checkpointLsn;                                // 上一个检查点对应的位置，日志长度 = appendedLsn - checkpointLsn
+    private boolean closed;
+    private IOException failure;                               // 写日志失败后内存和日志可能不一致，拒绝之后的所有操作
+
+    // 以下字段由 syncLock 保护
+    private final Object syncLock = new Object();
+    private boolean flushing;                                  // 是否有线程正在写日志文件（leader）
+    private long writtenLsn;                                   // 已经write到文件的位置
+    private long syncedLsn;                                    // 已经fsync的位置
+
+    // 只有leader访问：与pending交替使用的缓冲区
+    private Buffer flushBuffer = new Buffer();
+
+    // 可以直接拿到内部数组的ByteArrayOutputStream，免去toByteArray的复制
+    private static final class Buffer extends ByteArrayOutputStream {
+        Buffer(){
+            super(1 << 12);
+        }
+
+        byte[] array(){
+            return buf;
+        }
+
+        void writeInt(int v){
+            write(v >>> 24);
+            write(v >>> 16);
+            write(v >>> 8);
+            write(v);
+        }
+    }
+
+    public DurableHashTable(Path dir, Codec<Key> keyCodec, Codec<Value> valCodec,
+                            FsyncPolicy policy, long intervalMillis, long checkpointBytes) throws IOException{
+        if (intervalMillis <= 0) throw new IllegalArgumentException("intervalMillis must be positive: " + intervalMillis);
+        if (checkpointBytes <= 0 || checkpointBytes > MAX_CHECKPOINT_BYTES){
+            throw new IllegalArgumentException("checkpointBytes must be in (0, " + MAX_CHECKPOINT_BYTES + "]: " + checkpointBytes);
+        }
+        this.keyCodec = keyCodec;
+        this.valCodec = valCodec;
+        this.policy = policy;
+        this.checkpointBytes = checkpointBytes;
+
+        Files.createDirectories(dir);
+        this.checkpointFile = dir.resolve("checkpoint");
+        if (Files.exists(checkpointFile)){
+            loadCheckpoint();
+        }
+        Path walFile = dir.resolve("wal");
+        boolean created = !Files.exists(walFile);
+        this.wal = FileChannel.open(walFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // 恢复失败（日志损坏、IO错误）时关闭日志文件再抛出，不泄漏文件句柄
+        try {
+            if (created){
+                // 新建的日志文件要fsync目录才能保证断电后还在，否则之前fsync过的记录会随文件一起丢失
+                wal.force(true);
+                SnapshotFile.syncDirectory(dir);
+            }
+            long valid = replay();
+            if (valid < wal.size()){
+                wal.truncate(valid);
+                wal.force(true);
+            }
+            wal.position(valid);
+            appendedLsn = writtenLsn = syncedLsn = valid;
+        }catch (Throwable e){
+            try {
+                wal.close();
+            }catch (IOException suppressed){
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "wal-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = policy == FsyncPolicy.INTERVAL ? intervalMillis : DEFAULT_INTERVAL_MILLIS;
+        maintenance.scheduleWithFixedDelay(this::maintain, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public DurableHashTable(Path dir, Codec<Key> keyCodec, Codec<Value> valCodec,
+                            FsyncPolicy policy, long intervalMillis) throws IOException{
+        this(dir, keyCodec, valCodec, policy, intervalMillis, DEFAULT_CHECKPOINT_BYTES);
+    }
+
+    public DurableHashTable(Path dir, Codec<Key> keyCodec, Codec<Value> valCodec) throws IOException{
+        this(dir, keyCodec, valCodec, FsyncPolicy.ALWAYS, DEFAULT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 哈希表API
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    public synchronized int size(){
+        return table.size();
+    }
+
+    public synchronized boolean isEmpty(){
+        return table.isEmpty();
+    }
+
+    public synchronized Value get(Key key){
+        return table.get(key);
+    }
+
+    public synchronized boolean contains(Key key){
+        return table.contains(key);
+    }
+
+    public void add(Key key, Value value){
+        if (key == null) throw new IllegalArgumentException("calls add() with a null key");
+        if (value == null) throw new IllegalArgumentException("calls add() with a null value");
+        long lsn;
+        synchronized (this){
+            ensureOpen();
+            // 先编码再修改：编码失败时哈希表和日志都没有变化
+            lsn = append(PUT, key, value);
+            table.add(key, value);
+        }
+        awaitDurable(lsn);
+    }
+
+    public Value remove(Key key){
+        if (key == null) throw new IllegalArgumentException("calls remove() with a null key");
+        long lsn;
+        Value ret;
+        synchronized (this){
+            ensureOpen();
+            if (!table.contains(key)){
+                return null;
+            }
+            lsn = append(REMOVE, key, null);
+            ret = table.remove(key);
+        }
+        awaitDurable(lsn);
+        return ret;
+    }
+
+    private void ensureOpen(){
+        if (closed) throw new IllegalStateException("table is closed");
+        if (failure != null) throw new UncheckedIOException("write-ahead log failed", failure);
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 写日志与组提交
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    // 调用者持有this锁：编码一条记录追加到pending，返回记录结束的位置
+    private long append(byte op, Key key, Value val){
+        record.reset();
+        try {
+            recordOut.writeByte(op);
+            keyCodec.encode(key, recordOut);
+            if (op == PUT){
+                valCodec.encode(val, recordOut);
+            }
+        }catch (IOException e){
+            // 写入内存缓冲区不会真的抛出IOException
+            throw new UncheckedIOException(e);
+        }
+        int n = record.size();
+        crc.reset();
+        crc.update(record.array(), 0, n);
+        pending.writeInt(n);
+        pending.writeInt((int) crc.getValue());
+        pending.write(record.array(), 0, n);
+        appendedLsn += HEADER_BYTES + n;
+        return appendedLsn;
+    }
+
+    private void awaitDurable(long lsn){
+        try {
+            flush(lsn, policy == FsyncPolicy.ALWAYS);
+        }catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // 等到lsn之前的记录都写入文件（force时还要fsync）。没有leader时自己成为leader，把缓冲区中所有记录一起写出
+    private void flush(long lsn, boolean force) throws IOException{
+        synchronized (syncLock){
+            while (true){
+                if ((force ? syncedLsn : writtenLsn) >= lsn){
+                    return;
+                }
+                if (!flushing){
+                    flushing = true;
+                    break;
+                }
+                waitForLeader();
+            }
+        }
+
+        try {
+            Buffer batch;
+            long end;
+            synchronized (this){
+                if (failure != null) throw failure;
+                batch = pending;
+                pending = flushBuffer;
+                end = appendedLsn;
+            }
+            try {
+                writeFully(batch);
+                batch.reset();
+                flushBuffer = batch;
+                synchronized (syncLock){
+                    writtenLsn = end;
+                }
+                if (force){
+                    // fdatasync：追加导致的文件长度变化也会一起写回
+                    wal.force(false);
+                    synchronized (syncLock){
+                        syncedLsn = end;
+                    }
+                }
+            }catch (IOException e){
+                synchronized (this){
+                    failure = e;
+                }
+                throw e;
+            }
+        }finally {
+            synchronized (syncLock){
+                flushing = false;
+                syncLock.notifyAll();
+            }
+        }
+    }
+
+    // 调用者持有syncLock
+    private void waitForLeader() throws InterruptedIOException{
+        try {
+            syncLock.wait();
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for the write-ahead log");
+        }
+    }
+
+    private void writeFully(Buffer batch) throws IOException{
+        ByteBuffer bb = ByteBuffer.wrap(batch.array(), 0, batch.size());
+        while (bb.hasRemaining()){
+            wal.write(bb);
+        }
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 检查点
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    // 把整张表写成新的检查点并清空日志
+    public void checkpoint() throws IOException{
+        // 先成为leader：检查点期间没有其他线程写日志文件
+        synchronized (syncLock){
+            while (flushing){
+                waitForLeader();
+            }
+            flushing = true;
+        }
+        try {
+            synchronized (this){
+                if (closed) return;
+                if (failure != null) throw failure;
+                long end = appendedLsn;
+                try {
+                    writeFully(pending);
+                    pending.reset();
+                    wal.force(false);
+
+                    SnapshotFile.write(checkpointFile, SnapshotFile.TYPE_HASH, table.size(), out -> {
+                        for (Map.Entry<Key, Value> e : table.entries()) {
+                            keyCodec.encode(e.getKey(), out);
+                            valCodec.encode(e.getValue(), out);
+                        }
+                    });
+
+                    // SnapshotFile.write 返回时新检查点的重命名已经随目录fsync落盘，
+                    // 这时才能截断日志，否则断电后可能看到旧检查点加上空日志
+                    wal.truncate(0);
+                    wal.position(0);
+                    wal.force(true);
+                }catch (IOException e){
+                    failure = e;
+                    throw e;
+                }
+                checkpointLsn = end;
+                synchronized (syncLock){
+                    writtenLsn = end;
+                    syncedLsn = end;
+                }
+            }
+        }finally {
+            synchronized (syncLock){
+                flushing = false;
+                syncLock.notifyAll();
+            }
+        }
+    }
+
+    // 后台线程：INTERVAL时定期fsync，日志过长时写检查点
+    private void maintain(){
+        try {
+            long lsn;
+            boolean full;
+            synchronized (this){
+                if (closed || failure != null) return;
+                lsn = appendedLsn;
+                full = appendedLsn - checkpointLsn >= checkpointBytes;
+            }
+            if (policy == FsyncPolicy.INTERVAL){
+                flush(lsn, true);
+            }
+            if (full){
+                checkpoint();
+            }
+        }catch (IOException e){
+            synchronized (this){
+                if (failure == null){
+                    failure = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 恢复
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    private void loadCheckpoint() throws IOException{
+        ByteBuffer in = SnapshotFile.open(checkpointFile, SnapshotFile.TYPE_HASH);
+        try {
+            int n = in.getInt();
+            for (int i = 0; i < n; i++) {
+                Key key = keyCodec.decode(in);
+                table.add(key, valCodec.decode(in));
+            }
+        }catch (BufferUnderflowException e){
+            throw new IOException("truncated checkpoint: " + checkpointFile, e);
+        }
+    }
+
+    // 按顺序重放日志，返回最后一条完整记录结束的位置
+    private long replay() throws IOException{
+        long size = wal.size();
+        if (size > Integer.MAX_VALUE){
+            throw new IOException("write-ahead log larger than 2GB: " + size);
+        }
+        ByteBuffer in = ByteBuffer.allocate((int) size);
+        while (in.hasRemaining()){
+            if (wal.read(in, in.position()) < 0){
+                break;
+            }
+        }
+        in.flip();
+
+        int valid = 0;
+        while (in.remaining() >= HEADER_BYTES){
+            int n = in.getInt();
+            int sum = in.getInt();
+            if (n <= 0 || n > in.remaining()){
+                break;
+            }
+            crc.reset();
+            crc.update(in.array(), in.arrayOffset() + in.position(), n);
+            if ((int) crc.getValue() != sum){
+                break;
+            }
+            ByteBuffer body = in.slice();
+            body.limit(n);
+            try {
+                byte op = body.get();
+                Key key = keyCodec.decode(body);
+                if (op == PUT){
+                    table.add(key, valCodec.decode(body));
+                }else if (op == REMOVE){
+                    table.remove(key);
+                }else {
+                    throw new IOException("unknown log record type " + op + " at offset " + valid);
+                }
+            }catch (BufferUnderflowException e){
+                throw new IOException("log record at offset " + valid + " does not match the codecs", e);
+            }
+            in.position(in.position() + n);
+            valid = in.position();
+        }
+        return valid;
+    }
+
+    // 把所有记录写入文件并fsync，停止后台线程
+    @Override
+    public void close() throws IOException{
+        synchronized (this){
+            if (closed) return;
+            closed = true;
+        }
+        maintenance.shutdown();
+        try {
+            maintenance.awaitTermination(1, TimeUnit.MINUTES);
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        try {
+            long lsn;
+            synchronized (this){
+                lsn = appendedLsn;
+            }
+            flush(lsn, true);
+        }finally {
+            wal.close();
+        }
+    }
+
+
+    public static void main(String[] args) throws IOException{
+        Path dir = args.length > 0 ? Paths.get(args[0]) : Files.createTempDirectory("durable-hashtable");
+
+        try (DurableHashTable<String, Integer> ht = new DurableHashTable<>(dir, Codecs.STRING, Codecs.INT)) {
+            for (int i = 0; i < 1000; i++) {
+                ht.add("key" + i, i);
+            }
+            ht.checkpoint();
+            ht.add("key1000", 1000);
+            ht.remove("key0");
+        }
+
+        // 重新打开：载入检查点，再重放检查点之后的两条记录
+        try (DurableHashTable<String, Integer> ht = new DurableHashTable<>(dir, Codecs.STRING, Codecs.INT)) {
+            System.out.println("size = " + ht.size());
+            System.out.println("get(\"key0\") = " + ht.get("key0"));
+            System.out.println("get(\"key1000\") = " + ht.get("key1000"));
+        }
+    }
+}
@@ -1,54 +1,245 @@
 package HashTable;
 
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.TreeMap;
 
+/**
+ * 哈希表的动态空间处理与渐进式rehash
+ *
+ * (1) 平均每个桶承载的元素数 size / M >= upperTol 时扩容，< lowerTol 时缩容，容量取 capacity 中的素数
+ * (2) 扩容/缩容时不一次性搬迁所有元素（参考Redis的渐进式rehash）：
+ *     新建一张表 rehashTable，之后每次 add/get/remove 顺带搬迁 hashtable 中的一个非空桶，
+ *     rehashIndex 之前的桶已经搬完，全部搬完后用新表替换旧表。这样单次操作不会因为整表rehash而卡顿
+ * (3) 桶中的 TreeMap 在第一次使用时才创建，避免新表分配时一次性创建 M 棵 TreeMap
+ */
 // 哈希表的key不需要比较，所以不extends Comparable接口
 public class HashTable<Key, Value> {
+    // 素数容量表，每一项约为前一项的2倍
+    private static final int[] capacity = {
+            53, 97, 193, 389, 769, 1543, 3079, 6151, 12289, 24593,
+            49157, 98317, 196613, 393241, 786433, 1572869, 3145739, 6291469,
+            12582917, 25165843, 50331653, 100663319, 201326611, 402653189, 805306457, 1610612741};
+
+    private static final int upperTol = 10;
+    private static final int lowerTol = 2;
+
+    // 每次操作最多搬迁1个非空桶，最多跳过 EMPTY_VISITS 个空桶
+    private static final int EMPTY_VISITS = 10;
+
     private TreeMap<Key, Value>[] hashtable;
     private int M;
     private int size;
 
+    // 缩容的下限：构造时指定的容量
+    private final int minM;
+
+    // 渐进式rehash的状态：rehashIndex == -1 表示当前没有在rehash
+    private TreeMap<Key, Value>[] rehashTable;
+    private int rehashM;
+    private int rehashIndex = -1;
+
+    @SuppressWarnings("unchecked")
     public HashTable(int M) {
         this.M = M;
+        this.minM = M;
         this.hashtable = new TreeMap[M];
         this.size = 0;
-        for (int i = 0; i < M; i++) {
-            hashtable[i] = new TreeMap<>();
-        }
     }
 
     public HashTable(){
         this(97);
     }
 
-    private int hash(Key k){
+    public int size(){
+        return size;
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    private int hash(Key k, int M){
         int hashh = k.hashCode();
         return (hashh & 0x7fffffff) % M;
     }
 
+    private boolean isRehashing(){
+        return rehashIndex != -1;
+    }
+
+    // 返回key当前所在的桶：rehashIndex之前的桶已经搬到了新表中
+    private TreeMap<Key, Value> bucketOf(Key key, boolean create){
+        TreeMap<Key, Value>[] table = hashtable;
+        int index = hash(key, M);
+        if (isRehashing() && index < rehashIndex){
+            table = rehashTable;
+            index = hash(key, rehashM);
+        }
+
+        TreeMap<Key, Value> map = table[index];
+        if (map == null && create){
+            map = new TreeMap<>();
+            table[index] = map;
+        }
+        return map;
+    }
 
     public void add(Key key, Value value){
-        int hashcode = hash(key);
-        TreeMap<Key, Value> map = hashtable[hashcode];
+        if (isRehashing()){
+            rehashStep();
+        }
+
+        TreeMap<Key, Value> map = bucketOf(key, true);
         if (!map.containsKey(key)){
             size++;
         }
         map.put(key, value);
+
+        if (!isRehashing() && size >= upperTol * M){
+            int next = nextCapacity(M);
+            if (next != M){
+                startRehash(next);
+            }
+        }
     }
 
     public Value remove(Key key){
-        int hashcode = hash(key);
-        TreeMap<Key, Value> map = hashtable[hashcode];
+        if (isRehashing()){
+            rehashStep();
+        }
+
+        TreeMap<Key, Value> map = bucketOf(key, false);
         Value ret = null;
-        if (map.containsKey(key)){
+        if (map != null && map.containsKey(key)){
             ret = map.remove(key);
             size--;
         }
+
+        if (!isRehashing() && size < lowerTol * M && M > minM){
+            int prev = Math.max(prevCapacity(M), minM);
+            if (prev != M){
+                startRehash(prev);
+            }
+        }
         return ret;
     }
 
     public Value get(Key key){
-        int hashcode = hash(key);
-        return hashtable[hashcode].get(key);
+        if (isRehashing()){
+            rehashStep();
+        }
+
+        TreeMap<Key, Value> map = bucketOf(key, false);
+        return map == null ? null : map.get(key);
+    }
+
+    public boolean contains(Key key){
+        TreeMap<Key, Value> map = bucketOf(key, false);
+        return map != null && map.containsKey(key);
+    }
+
+    // 所有键值对，顺序不确定。rehash期间先遍历旧表再遍历新表，已搬迁的桶在旧表中为null，每个元素恰好出现一次。
+    // 遍历期间不能修改哈希表，也不能调用get（它会推进rehash）
+    public Iterable<Map.Entry<Key, Value>> entries(){
+        return EntryIterator::new;
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<Key, Value>> {
+        private final TreeMap<Key, Value>[] next = rehashTable;    // 旧表遍历完之后遍历的表，没有rehash时为null
+        private TreeMap<Key, Value>[] table = hashtable;
+        private int index = 0;
+        private Iterator<Map.Entry<Key, Value>> bucket = Collections.emptyIterator();
+
+        @Override
+        public boolean hasNext(){
+            while (!bucket.hasNext()){
+                if (table == null){
+                    return false;
+                }
+                if (index == table.length){
+                    table = (table == next) ? null : next;
+                    index = 0;
+                    continue;
+                }
+                TreeMap<Key, Value> map = table[index++];
+                if (map != null){
+                    bucket = map.entrySet().iterator();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Map.Entry<Key, Value> next(){
+            if (!hasNext()) throw new NoSuchElementException();
+            return bucket.next();
+        }
+    }
+
+    // 容量表中大于M的第一个素数
+    private static int nextCapacity(int M){
+        for (int c : capacity) {
+            if (c > M){
+                return c;
+            }
+        }
+        return M;
+    }
+
+    // 容量表中小于M的最后一个素数
+    private static int prevCapacity(int M){
+        int prev = M;
+        for (int c : capacity) {
+            if (c >= M){
+                break;
+            }
+            prev = c;
+        }
+        return prev;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void startRehash(int newM){
+        rehashTable = new TreeMap[newM];
+        rehashM = newM;
+        rehashIndex = 0;
+        rehashStep();
+    }
+
+    // 搬迁一个非空桶，遇到空桶时最多跳过EMPTY_VISITS个
+    private void rehashStep(){
+        int emptyVisits = EMPTY_VISITS;
+        while (rehashIndex < M && hashtable[rehashIndex] == null){
+            rehashIndex++;
+            if (--emptyVisits == 0){
+                break;
+            }
+        }
+
+        if (rehashIndex < M && hashtable[rehashIndex] != null){
+            TreeMap<Key, Value> map = hashtable[rehashIndex];
+            hashtable[rehashIndex] = null;
+            rehashIndex++;
+            for (Map.Entry<Key, Value> e : map.entrySet()) {
+                int index = hash(e.getKey(), rehashM);
+                TreeMap<Key, Value> target = rehashTable[index];
+                if (target == null){
+                    target = new TreeMap<>();
+                    rehashTable[index] = target;
+                }
+                target.put(e.getKey(), e.getValue());
+            }
+        }
+
+        // 所有桶都搬迁完毕，新表替换旧表
+        if (rehashIndex >= M){
+            hashtable = rehashTable;
+            M = rehashM;
+            rehashTable = null;
+            rehashIndex = -1;
+        }
     }
 }
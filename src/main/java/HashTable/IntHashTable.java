@@ -0,0 +1,204 @@
+package HashTable;
+
+/**
+ * int 键的开放地址法（线性探测）哈希表，键不装箱
+ *
+ * 键存放在 int[] keys 中，值存放在并行的 Object[] vals 中，探测过程只访问 keys 数组。
+ * 用 0 表示空位，因此键 0 单独存放在 zeroValue 中（hasZeroKey 标记是否存在）。
+ * 扩容、缩容及删除策略与 OpenHashTable 相同。
+ */
+public class IntHashTable<Value> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private int[] keys;
+    private Object[] vals;
+    private int mask;
+    private int size;
+
+    // 键为0的元素
+    private boolean hasZeroKey;
+    private Object zeroValue;
+
+    public IntHashTable(int capacity) {
+        int cap = tableSizeFor(capacity);
+        this.keys = new int[cap];
+        this.vals = new Object[cap];
+        this.mask = cap - 1;
+        this.size = 0;
+    }
+
+    public IntHashTable(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    private static int mix(int h){
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int hash(int k){
+        return mix(k) & mask;
+    }
+
+    // 不小于n的2的幂，超过 MAXIMUM_CAPACITY 时取 MAXIMUM_CAPACITY（继续左移会溢出为负数再变成0）
+    private static int tableSizeFor(int n){
+        if (n >= MAXIMUM_CAPACITY){
+            return MAXIMUM_CAPACITY;
+        }
+        int cap = 1;
+        while (cap < n){
+            cap <<= 1;
+        }
+        return Math.max(cap, 2);
+    }
+
+    public void add(int key, Value value){
+        if (key == 0){
+            if (!hasZeroKey){
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+
+        int i = hash(key);
+        int k;
+        while ((k = keys[i]) != 0){
+            if (k == key){
+                vals[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        // 已到最大容量时至少留一个空位，否则线性探测找不到null会一直循环
+        if (size + 1 >= mask + 1){
+            throw new IllegalStateException("hash table is full");
+        }
+        keys[i] = key;
+        vals[i] = value;
+        size++;
+
+        if (size > (mask + 1) / 2 && mask + 1 < MAXIMUM_CAPACITY){
+            resize(2 * (mask + 1));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public Value get(int key){
+        if (key == 0){
+            return hasZeroKey ? (Value) zeroValue : null;
+        }
+
+        int i = hash(key);
+        int k;
+        while ((k = keys[i]) != 0){
+            if (k == key){
+                return (Value) vals[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean contains(int key){
+        if (key == 0){
+            return hasZeroKey;
+        }
+
+        int i = hash(key);
+        int k;
+        while ((k = keys[i]) != 0){
+            if (k == key){
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Value remove(int key){
+        if (key == 0){
+            if (!hasZeroKey){
+                return null;
+            }
+            Value ret = (Value) zeroValue;
+            hasZeroKey = false;
+            zeroValue = null;
+            size--;
+            return ret;
+        }
+
+        int i = hash(key);
+        int k;
+        while ((k = keys[i]) != 0){
+            if (k == key){
+                Value ret = (Value) vals[i];
+                shiftKeys(i);
+                size--;
+                if (size > 0 && size <= (mask + 1) / 8 && mask + 1 > DEFAULT_CAPACITY){
+                    resize((mask + 1) / 2);
+                }
+                return ret;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    // 删除位置pos上的元素，并将同一探测簇中的后续元素前移
+    private void shiftKeys(int pos){
+        int last = pos;
+        int slot;
+        int k;
+        while (true){
+            slot = (last + 1) & mask;
+            while (true){
+                if ((k = keys[slot]) == 0){
+                    keys[last] = 0;
+                    vals[last] = null;
+                    return;
+                }
+                int ideal = hash(k);
+                if (last <= slot ? (last >= ideal || ideal > slot) : (last >= ideal && ideal > slot)){
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[last] = k;
+            vals[last] = vals[slot];
+            last = slot;
+        }
+    }
+
+    private void resize(int newCapacity){
+        int[] oldKeys = keys;
+        Object[] oldVals = vals;
+        keys = new int[newCapacity];
+        vals = new Object[newCapacity];
+        mask = newCapacity - 1;
+
+        for (int j = 0; j < oldKeys.length; j++){
+            int k = oldKeys[j];
+            if (k == 0){
+                continue;
+            }
+            int i = hash(k);
+            while (keys[i] != 0){
+                i = (i + 1) & mask;
+            }
+            keys[i] = k;
+            vals[i] = oldVals[j];
+        }
+    }
+}
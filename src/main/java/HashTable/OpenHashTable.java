@@ -0,0 +1,181 @@
+package HashTable;
+
+/**
+ * 开放地址法（线性探测）哈希表
+ *
+ * 与 HashTable 中每个桶一棵 TreeMap 不同，这里所有键值对都存放在一个扁平数组 table 中：
+ * table[2*i] 存放键，table[2*i+1] 存放值，键和值挨在一起，一次命中通常只需访问一到两个缓存行。
+ *
+ * (1) 容量始终为 2 的幂，用位运算 & mask 代替取模
+ * (2) 冲突时向后线性探测，直到遇到空位（null）为止
+ * (3) 删除时不使用墓碑，而是把后面同一探测簇中的元素向前移动（backward shift），保证查找不会被删除过的位置打断
+ * (4) 元素个数超过容量的 1/2 时扩容为 2 倍，少于 1/8 时缩容为 1/2
+ */
+public class OpenHashTable<Key, Value> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAXIMUM_CAPACITY = 1 << 29;   // table长度为容量的2倍，不能超过 1 << 30
+
+    private Object[] table;       // 键值交错存放
+    private int mask;             // capacity - 1
+    private int size;
+
+    public OpenHashTable(int capacity) {
+        int cap = tableSizeFor(capacity);
+        this.table = new Object[cap * 2];
+        this.mask = cap - 1;
+        this.size = 0;
+    }
+
+    public OpenHashTable(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    // 将hashCode的高位扰动到低位，避免只使用低位导致的聚集
+    private static int mix(int h){
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int hash(Object k){
+        return mix(k.hashCode()) & mask;
+    }
+
+    // 大于等于n的最小的2的幂，超过 MAXIMUM_CAPACITY 时取 MAXIMUM_CAPACITY（继续左移会溢出为负数再变成0）
+    private static int tableSizeFor(int n){
+        if (n >= MAXIMUM_CAPACITY){
+            return MAXIMUM_CAPACITY;
+        }
+        int cap = 1;
+        while (cap < n){
+            cap <<= 1;
+        }
+        return Math.max(cap, 2);
+    }
+
+    public void add(Key key, Value value){
+        if (key == null) throw new IllegalArgumentException("calls add() with a null key");
+
+        int i = hash(key);
+        Object k;
+        while ((k = table[2*i]) != null){
+            if (k.equals(key)){
+                table[2*i + 1] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        // 已到最大容量时至少留一个空位，否则线性探测找不到null会一直循环
+        if (size + 1 >= mask + 1){
+            throw new IllegalStateException("hash table is full");
+        }
+        table[2*i] = key;
+        table[2*i + 1] = value;
+        size++;
+
+        if (size > (mask + 1) / 2 && mask + 1 < MAXIMUM_CAPACITY){
+            resize(2 * (mask + 1));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public Value get(Key key){
+        if (key == null) throw new IllegalArgumentException("calls get() with a null key");
+
+        int i = hash(key);
+        Object k;
+        while ((k = table[2*i]) != null){
+            if (k.equals(key)){
+                return (Value) table[2*i + 1];
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean contains(Key key){
+        if (key == null) throw new IllegalArgumentException("calls contains() with a null key");
+
+        int i = hash(key);
+        Object k;
+        while ((k = table[2*i]) != null){
+            if (k.equals(key)){
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    public Value remove(Key key){
+        if (key == null) throw new IllegalArgumentException("calls remove() with a null key");
+
+        int i = hash(key);
+        Object k;
+        while ((k = table[2*i]) != null){
+            if (k.equals(key)){
+                Value ret = (Value) table[2*i + 1];
+                shiftKeys(i);
+                size--;
+                if (size > 0 && size <= (mask + 1) / 8 && mask + 1 > DEFAULT_CAPACITY){
+                    resize((mask + 1) / 2);
+                }
+                return ret;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    // 删除位置pos上的元素：将其后同一探测簇中"理想位置不在(pos, slot]之间"的元素前移填补空位
+    private void shiftKeys(int pos){
+        int last = pos;
+        int slot;
+        Object k;
+        while (true){
+            slot = (last + 1) & mask;
+            while (true){
+                if ((k = table[2*slot]) == null){
+                    table[2*last] = null;
+                    table[2*last + 1] = null;
+                    return;
+                }
+                int ideal = hash(k);
+                if (last <= slot ? (last >= ideal || ideal > slot) : (last >= ideal && ideal > slot)){
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            table[2*last] = k;
+            table[2*last + 1] = table[2*slot + 1];
+            last = slot;
+        }
+    }
+
+    private void resize(int newCapacity){
+        Object[] old = table;
+        table = new Object[newCapacity * 2];
+        mask = newCapacity - 1;
+
+        for (int j = 0; j < old.length; j += 2){
+            Object k = old[j];
+            if (k == null){
+                continue;
+            }
+            int i = hash(k);
+            while (table[2*i] != null){
+                i = (i + 1) & mask;
+            }
+            table[2*i] = k;
+            table[2*i + 1] = old[j + 1];
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package LSM;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 布隆过滤器：mightContain 返回false时键一定不存在，返回true时键可能存在
+ *
+ * (1) m 个比特位，每个键用 k 个哈希函数置位；每个键 bitsPerKey 个比特，k 取 bitsPerKey * ln2 时误判率最低，
+ *     10 bits/key 约为 1%
+ * (2) k 个哈希值由一个64位哈希的高低两半双重散列得到：h1 + i * h2（Kirsch-Mitzenmacher），只需计算一次哈希
+ * (3) 哈希的输入是键编码后的字节而不是 hashCode()，写入文件后换一个JVM读取时结果仍然一致
+ */
+public class BloomFilter {
+    private final long[] bits;
+    private final long m;       // 比特数
+    private final int k;        // 哈希函数个数
+
+    public BloomFilter(int expectedKeys, int bitsPerKey){
+        long n = Math.max(64L, (long) Math.max(expectedKeys, 1) * bitsPerKey);
+        this.bits = new long[(int) ((n + 63) >>> 6)];
+        this.m = (long) bits.length << 6;
+        this.k = Math.max(1, Math.min(30, (int) Math.round(bitsPerKey * Math.log(2))));
+    }
+
+    private BloomFilter(long[] bits, int k){
+        this.bits = bits;
+        this.m = (long) bits.length << 6;
+        this.k = k;
+    }
+
+    public void add(long hash){
+        int h1 = (int) hash, h2 = (int) (hash >>> 32);
+        for (int i = 0; i < k; i++) {
+            long bit = ((h1 + i * h2) & 0x7fffffffL) % m;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    public boolean mightContain(long hash){
+        int h1 = (int) hash, h2 = (int) (hash >>> 32);
+        for (int i = 0; i < k; i++) {
+            long bit = ((h1 + i * h2) & 0x7fffffffL) % m;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 64位哈希：FNV-1a 逐字节混入，最后再做一次 murmur3 的 fmix64 打散低位
+    public static long hash(byte[] b, int off, int len){
+        long h = 0xcbf29ce484222325L;
+        for (int i = off; i < off + len; i++) {
+            h ^= b[i] & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // k(4) | 数组长度(4) | bits
+    public void write(DataOutput out) throws IOException{
+        out.writeInt(k);
+        out.writeInt(bits.length);
+        for (long word : bits) {
+            out.writeLong(word);
+        }
+    }
+
+    public static BloomFilter read(ByteBuffer in){
+        int k = in.getInt();
+        long[] bits = new long[in.getInt()];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = in.getLong();
+        }
+        return new BloomFilter(bits, k);
+    }
+}
@@ -0,0 +1,667 @@
+package LSM;
+
+import AVL.AVLTree;
+import Snapshot.Codec;
+import Snapshot.Codecs;
+import Snapshot.SnapshotFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 日志结构合并树（log-structured merge tree）：写入只进内存，磁盘上只有整个文件的顺序写
+ *
+ * (1) memtable：写入先放进内存中的 AVLTree，删除写入值为null的删除标记（AVLTree 允许null值，contains 仍为true）。
+ *     元素个数达到 memtableEntries 后整棵树变为只读的 immutable，由刷盘线程按中序写成 L0 的一个 SSTable
+ * (2) 层：L0 的文件由 memtable 直接刷出，键的范围互相重叠，越新的越先查；L1 及以下每层内的文件键范围互不重叠，
+ *     按最小键排序，第 i 层的总大小上限为 targetFileBytes * 10^i
+ * (3) 合并（leveled compaction）：后台线程在 L0 的文件数达到 L0_COMPACTION_TRIGGER 时，把所有 L0 文件
+ *     与 L1 中和它们重叠的文件合并成新的 L1 文件；第 i 层超过上限时，轮流挑出其中一个文件，
+ *     与第 i+1 层中和它重叠的文件合并到第 i+1 层。合并用 MinPQ 多路归并，同一个键只保留最新的值，
+ *     输出到最底层时删除标记也一并丢掉；输出按 targetFileBytes 切分成多个文件
+ * (4) 读：get 依次查 memtable、immutable、L0（从新到旧）、L1、L2...，遇到第一个值或删除标记就停止，
+ *     L1 及以下每层最多查一个文件，文件内先问布隆过滤器。范围查询把所有来源与 [lo, hi] 相交的部分多路归并
+ * (5) 清单（MANIFEST）：每次刷盘、合并完成后原子地重写，记录每层有哪些文件。打开时按清单恢复各层，
+ *     不在清单中的文件是崩溃时没有完成的输出，直接删除
+ *
+ * 各层的文件列表整体替换（写时复制），读者拿到当前的 Version 之后不受之后的刷盘、合并影响；
+ * 合并删除的文件已经映射到内存，正在读它的线程仍然可以读完（删除映射中的文件在 Windows 上会失败）。
+ *
+ * memtable 没有预写日志，进程崩溃时还没有刷盘的写入会丢失；需要持久化时调用 flush()，close() 也会先刷盘。
+ * 所有方法都是线程安全的。值不允许为null
+ */
+public class LSMTree<Key extends Comparable<Key>, Value> implements Closeable {
+    private static final int MAX_LEVELS = 7;
+    private static final int L0_COMPACTION_TRIGGER = 4;
+    private static final int L0_STOP_WRITES_TRIGGER = 12;
+    private static final int LEVEL_MULTIPLIER = 10;
+    private static final int DEFAULT_MEMTABLE_ENTRIES = 1 << 16;
+    private static final long DEFAULT_TARGET_FILE_BYTES = 4L << 20;
+    private static final String MANIFEST = "MANIFEST";
+
+    private final Path dir;
+    private final Codec<Key> keyCodec;
+    private final Codec<Value> valCodec;
+    private final int memtableEntries;
+    private final long targetFileBytes;
+
+    // 以下字段由 this 保护
+    private AVLTree<Key, Value> memtable = new AVLTree<>();
+    private AVLTree<Key, Value> immutable;                       // 正在刷盘的memtable，没有时为null
+    private long nextFileNumber = 1;
+    private final int[] compactPointer = new int[MAX_LEVELS];    // 每层下一次合并哪个文件（轮流）
+    private boolean closed;
+    private IOException failure;                                 // 后台线程出错后拒绝之后的写入
+
+    private volatile Version version;
+
+    private final Thread flusher;
+    private final Thread compactor;
+
+    // 某一时刻各层的文件，创建后不再修改
+    private final class Version {
+        // levels.get(0) 从新到旧；其余各层按最小键排序
+        private final List<List<SSTable<Key, Value>>> levels;
+
+        Version(List<List<SSTable<Key, Value>>> levels){
+            this.levels = levels;
+        }
+
+        List<SSTable<Key, Value>> level(int i){
+            return levels.get(i);
+        }
+
+        long bytes(int i){
+            long n = 0;
+            for (SSTable<Key, Value> t : levels.get(i)) {
+                n += t.bytes();
+            }
+            return n;
+        }
+
+        // 复制出可以修改的各层列表，修改后用来创建新的Version
+        List<List<SSTable<Key, Value>>> copyLevels(){
+            List<List<SSTable<Key, Value>>> copy = new ArrayList<>(MAX_LEVELS);
+            for (List<SSTable<Key, Value>> level : levels) {
+                copy.add(new ArrayList<>(level));
+            }
+            return copy;
+        }
+    }
+
+    // 一次合并：upper 为第 level 层的输入，lower 为第 level+1 层中与之重叠的文件
+    private final class Compaction {
+        private final int level;
+        private final List<SSTable<Key, Value>> upper;
+        private final List<SSTable<Key, Value>> lower;
+
+        Compaction(int level, List<SSTable<Key, Value>> upper, List<SSTable<Key, Value>> lower){
+            this.level = level;
+            this.upper = upper;
+            this.lower = lower;
+        }
+    }
+
+    public LSMTree(Path dir, Codec<Key> keyCodec, Codec<Value> valCodec,
+                   int memtableEntries, long targetFileBytes) throws IOException{
+        if (memtableEntries <= 0) throw new IllegalArgumentException("memtableEntries must be positive: " + memtableEntries);
+        if (targetFileBytes <= 0 || targetFileBytes >= Integer.MAX_VALUE){
+            throw new IllegalArgumentException("targetFileBytes must be in (0, 2GB): " + targetFileBytes);
+        }
+        this.dir = dir;
+        this.keyCodec = keyCodec;
+        this.valCodec = valCodec;
+        this.memtableEntries = memtableEntries;
+        this.targetFileBytes = targetFileBytes;
+
+        Files.createDirectories(dir);
+        this.version = recover();
+
+        this.flusher = new Thread(this::flushLoop, "lsm-flush");
+        this.compactor = new Thread(this::compactLoop, "lsm-compaction");
+        flusher.setDaemon(true);
+        compactor.setDaemon(true);
+        flusher.start();
+        compactor.start();
+    }
+
+    public LSMTree(Path dir, Codec<Key> keyCodec, Codec<Value> valCodec) throws IOException{
+        this(dir, keyCodec, valCodec, DEFAULT_MEMTABLE_ENTRIES, DEFAULT_TARGET_FILE_BYTES);
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 写
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    // ***2. 插入键值对key-val。如果已存在，仅更新值
+    public void put(Key key, Value val){
+        if (key == null) throw new IllegalArgumentException("calls put() with a null key");
+        if (val == null) throw new IllegalArgumentException("calls put() with a null value");
+        write(key, val);
+    }
+
+    // ***11. 删除键为key的元素：写入删除标记
+    public void delete(Key key){
+        if (key == null) throw new IllegalArgumentException("calls delete() with a null key");
+        write(key, null);
+    }
+
+    private synchronized void write(Key key, Value val){
+        ensureOpen();
+        memtable.put(key, val);
+        if (memtable.size() >= memtableEntries){
+            rotate(false);
+        }
+    }
+
+    // 调用者持有this锁：memtable变为immutable交给刷盘线程。上一个还没刷完、或L0文件积压到
+    // L0_STOP_WRITES_TRIGGER 时等待，写入快于刷盘与合并时写入方被阻塞，读不会被越来越多的L0文件拖慢
+    // 等待期间其他写入方可能已经换过memtable，force为false时重新检查大小
+    private void rotate(boolean force){
+        while ((immutable != null || version.level(0).size() >= L0_STOP_WRITES_TRIGGER) && failure == null && !closed){
+            await();
+        }
+        ensureOpen();
+        if (memtable.isEmpty() || (!force && memtable.size() < memtableEntries)){
+            return;
+        }
+        immutable = memtable;
+        memtable = new AVLTree<>();
+        notifyAll();
+    }
+
+    // 把memtable中的写入刷到磁盘，返回时都已经在L0中
+    public void flush() throws IOException{
+        synchronized (this){
+            ensureOpen();
+            if (!memtable.isEmpty()){
+                rotate(true);
+            }
+            while (immutable != null && failure == null){
+                await();
+            }
+            if (failure != null) throw failure;
+        }
+    }
+
+    private void ensureOpen(){
+        if (closed) throw new IllegalStateException("tree is closed");
+        if (failure != null) throw new UncheckedIOException("background flush or compaction failed", failure);
+    }
+
+    // 调用者持有this锁
+    private void await(){
+        try {
+            wait();
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("interrupted while waiting for flush"));
+        }
+    }
+
+    private synchronized void fail(IOException e){
+        if (failure == null){
+            failure = e;
+        }
+        notifyAll();
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 读
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    // ***1. 查找Key=key元素的值，不存在或已删除时返回null
+    public Value get(Key key){
+        if (key == null) throw new IllegalArgumentException("calls get() with a null key");
+        Version v;
+        synchronized (this){
+            if (memtable.contains(key)){
+                return memtable.get(key);
+            }
+            if (immutable != null && immutable.contains(key)){
+                return immutable.get(key);
+            }
+            v = version;
+        }
+
+        long hash = SSTable.hash(keyCodec, key);
+        for (SSTable<Key, Value> t : v.level(0)) {
+            Object r = t.get(key, hash);
+            if (r != SSTable.ABSENT){
+                return cast(r);
+            }
+        }
+        for (int i = 1; i < MAX_LEVELS; i++) {
+            SSTable<Key, Value> t = find(v.level(i), key);
+            if (t != null){
+                Object r = t.get(key, hash);
+                if (r != SSTable.ABSENT){
+                    return cast(r);
+                }
+            }
+        }
+        return null;
+    }
+
+    public boolean contains(Key key){
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Value cast(Object r){
+        return (Value) r;
+    }
+
+    // 键范围互不重叠、按最小键排序的一层中，可能包含key的文件
+    private SSTable<Key, Value> find(List<SSTable<Key, Value>> level, Key key){
+        int lo = 0, hi = level.size() - 1;
+        while (lo <= hi){
+            int mid = (lo + hi) >>> 1;
+            if (level.get(mid).minKey().compareTo(key) <= 0){
+                lo = mid + 1;
+            }else {
+                hi = mid - 1;
+            }
+        }
+        if (hi < 0){
+            return null;
+        }
+        SSTable<Key, Value> t = level.get(hi);
+        return key.compareTo(t.maxKey()) <= 0 ? t : null;
+    }
+
+    // [lo, hi]之间的键值对，从小到大。每次迭代开始时取一次快照，之后的写入看不到
+    public Iterable<Map.Entry<Key, Value>> entries(Key lo, Key hi){
+        if (lo == null) throw new IllegalArgumentException("first argument to entries() is null");
+        if (hi == null) throw new IllegalArgumentException("second argument to entries() is null");
+        return () -> scan(lo, hi);
+    }
+
+    public Iterable<Key> keys(Key lo, Key hi){
+        Iterable<Map.Entry<Key, Value>> entries = entries(lo, hi);
+        return () -> {
+            Iterator<Map.Entry<Key, Value>> it = entries.iterator();
+            return new Iterator<Key>() {
+                @Override
+                public boolean hasNext(){
+                    return it.hasNext();
+                }
+
+                @Override
+                public Key next(){
+                    return it.next().getKey();
+                }
+            };
+        };
+    }
+
+    private Iterator<Map.Entry<Key, Value>> scan(Key lo, Key hi){
+        List<Iterator<Map.Entry<Key, Value>>> inputs = new ArrayList<>();
+        if (lo.compareTo(hi) > 0){
+            return Collections.emptyIterator();
+        }
+        Version v;
+        synchronized (this){
+            // memtable之后还会被修改，复制出[lo, hi]部分；immutable不再修改，可以直接迭代
+            ArrayList<Map.Entry<Key, Value>> mem = new ArrayList<>();
+            for (Map.Entry<Key, Value> e : memtable.entries(lo, hi)) {
+                mem.add(new AbstractMap.SimpleImmutableEntry<>(e.getKey(), e.getValue()));
+            }
+            inputs.add(mem.iterator());
+            if (immutable != null){
+                inputs.add(immutable.entries(lo, hi).iterator());
+            }
+            v = version;
+        }
+        for (int i = 0; i < MAX_LEVELS; i++) {
+            for (SSTable<Key, Value> t : v.level(i)) {
+                if (t.overlaps(lo, hi)){
+                    inputs.add(t.iterator(lo));
+                }
+            }
+        }
+        return new MergingIterator<>(inputs, hi, true);
+    }
+
+    // 第level层的文件数
+    public int tableCount(int level){
+        return version.level(level).size();
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 刷盘与合并（后台线程）
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    private Path tableFile(long number){
+        return dir.resolve(String.format("%06d.sst", number));
+    }
+
+    private synchronized long newFileNumber(){
+        return nextFileNumber++;
+    }
+
+    private void flushLoop(){
+        try {
+            while (true){
+                AVLTree<Key, Value> imm;
+                synchronized (this){
+                    while (immutable == null && !closed){
+                        wait();
+                    }
+                    if (immutable == null){
+                        return;
+                    }
+                    imm = immutable;
+                }
+
+                SSTable<Key, Value> t = imm.isEmpty() ? null : writeTable(imm);
+                synchronized (this){
+                    if (t != null){
+                        List<List<SSTable<Key, Value>>> levels = version.copyLevels();
+                        levels.get(0).add(0, t);
+                        install(new Version(levels));
+                    }
+                    immutable = null;
+                    notifyAll();
+                }
+            }
+        }catch (IOException e){
+            fail(e);
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            fail(new InterruptedIOException("flush thread interrupted"));
+        }catch (RuntimeException | Error e){
+            // 编解码、compareTo 等抛出的异常同样要记录下来，否则线程悄悄退出，等待它的写入方永远阻塞
+            fail(new IOException("flush failed", e));
+            throw e;
+        }
+    }
+
+    // 按中序把memtable写成一个文件，顺序写
+    private SSTable<Key, Value> writeTable(AVLTree<Key, Value> imm) throws IOException{
+        long number = newFileNumber();
+        SSTable.Writer<Key, Value> w = new SSTable.Writer<>(number, tableFile(number), imm.size(), keyCodec, valCodec);
+        try {
+            for (Map.Entry<Key, Value> e : imm.entries(imm.min(), imm.max())) {
+                w.add(e.getKey(), e.getValue());
+            }
+            return w.finish();
+        }catch (IOException | RuntimeException e){
+            w.abort();
+            throw e;
+        }
+    }
+
+    private void compactLoop(){
+        try {
+            while (true){
+                Compaction c = null;
+                synchronized (this){
+                    while (!closed && failure == null && (c = pickCompaction(version)) == null){
+                        wait();
+                    }
+                    if (closed || failure != null){
+                        return;
+                    }
+                }
+                compact(c);
+            }
+        }catch (IOException e){
+            fail(e);
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            fail(new InterruptedIOException("compaction thread interrupted"));
+        }catch (RuntimeException | Error e){
+            fail(new IOException("compaction failed", e));
+            throw e;
+        }
+    }
+
+    private long maxBytes(int level){
+        long n = targetFileBytes;
+        for (int i = 0; i < level; i++) {
+            n *= LEVEL_MULTIPLIER;
+        }
+        return n;
+    }
+
+    // 调用者持有this锁：选出下一次合并，不需要合并时返回null
+    private Compaction pickCompaction(Version v){
+        List<SSTable<Key, Value>> l0 = v.level(0);
+        if (l0.size() >= L0_COMPACTION_TRIGGER){
+            Key lo = l0.get(0).minKey(), hi = l0.get(0).maxKey();
+            for (SSTable<Key, Value> t : l0) {
+                if (t.minKey().compareTo(lo) < 0) lo = t.minKey();
+                if (t.maxKey().compareTo(hi) > 0) hi = t.maxKey();
+            }
+            return new Compaction(0, new ArrayList<>(l0), overlapping(v.level(1), lo, hi));
+        }
+        for (int i = 1; i < MAX_LEVELS - 1; i++) {
+            if (v.bytes(i) > maxBytes(i)){
+                List<SSTable<Key, Value>> level = v.level(i);
+                int p = compactPointer[i] % level.size();
+                compactPointer[i] = p + 1;
+                SSTable<Key, Value> t = level.get(p);
+                return new Compaction(i, Collections.singletonList(t), overlapping(v.level(i + 1), t.minKey(), t.maxKey()));
+            }
+        }
+        return null;
+    }
+
+    private List<SSTable<Key, Value>> overlapping(List<SSTable<Key, Value>> level, Key lo, Key hi){
+        List<SSTable<Key, Value>> list = new ArrayList<>();
+        for (SSTable<Key, Value> t : level) {
+            if (t.overlaps(lo, hi)){
+                list.add(t);
+            }
+        }
+        return list;
+    }
+
+    private void compact(Compaction c) throws IOException{
+        int target = c.level + 1;
+        // 只有合并线程修改L1及以下各层，这里读到的更深的层在合并完成前不会变
+        Version v = version;
+        boolean bottom = true;
+        for (int i = target + 1; i < MAX_LEVELS; i++) {
+            if (!v.level(i).isEmpty()){
+                bottom = false;
+            }
+        }
+
+        // 输入从新到旧：upper（L0时本身就是从新到旧）在前，lower在后
+        List<Iterator<Map.Entry<Key, Value>>> inputs = new ArrayList<>();
+        long inputKeys = 0, inputBytes = 0;
+        List<SSTable<Key, Value>> all = new ArrayList<>(c.upper);
+        all.addAll(c.lower);
+        for (SSTable<Key, Value> t : all) {
+            inputs.add(t.iterator(null));
+            inputKeys += t.size();
+            inputBytes += t.bytes();
+        }
+        // 每个输出文件的键数估计，用来确定布隆过滤器的大小
+        int expected = (int) Math.max(1, Math.min(inputKeys, inputKeys * targetFileBytes / Math.max(1, inputBytes) + 1));
+
+        MergingIterator<Key, Value> it = new MergingIterator<>(inputs, null, bottom);
+        List<SSTable<Key, Value>> outputs = new ArrayList<>();
+        SSTable.Writer<Key, Value> w = null;
+        try {
+            while (it.hasNext()){
+                Map.Entry<Key, Value> e = it.next();
+                if (w == null){
+                    long number = newFileNumber();
+                    w = new SSTable.Writer<>(number, tableFile(number), expected, keyCodec, valCodec);
+                }
+                w.add(e.getKey(), e.getValue());
+                if (w.bytes() >= targetFileBytes){
+                    outputs.add(w.finish());
+                    w = null;
+                }
+            }
+            if (w != null){
+                outputs.add(w.finish());
+                w = null;
+            }
+        }catch (IOException | RuntimeException e){
+            if (w != null){
+                w.abort();
+            }
+            for (SSTable<Key, Value> t : outputs) {
+                t.delete();
+            }
+            throw e;
+        }
+
+        synchronized (this){
+            List<List<SSTable<Key, Value>>> levels = version.copyLevels();
+            levels.get(c.level).removeAll(c.upper);
+            levels.get(target).removeAll(c.lower);
+            levels.get(target).addAll(outputs);
+            levels.get(target).sort(Comparator.comparing(SSTable::minKey));
+            install(new Version(levels));
+        }
+        for (SSTable<Key, Value> t : all) {
+            t.delete();
+        }
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 清单：nextFileNumber(8)，然后每层 文件数(4) | 文件编号(8)...
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    // 调用者持有this锁：先写清单，成功后再发布新的Version。
+    // SnapshotFile.write 最后fsync目录，新SSTable的目录项也一起落盘，清单不会引用断电后不存在的文件
+    private void install(Version v) throws IOException{
+        long next = nextFileNumber;
+        SnapshotFile.write(dir.resolve(MANIFEST), SnapshotFile.TYPE_MANIFEST, MAX_LEVELS, out -> {
+            out.writeLong(next);
+            for (int i = 0; i < MAX_LEVELS; i++) {
+                List<SSTable<Key, Value>> level = v.level(i);
+                out.writeInt(level.size());
+                for (SSTable<Key, Value> t : level) {
+                    out.writeLong(t.number);
+                }
+            }
+        });
+        version = v;
+        notifyAll();
+    }
+
+    private Version recover() throws IOException{
+        List<List<SSTable<Key, Value>>> levels = new ArrayList<>(MAX_LEVELS);
+        for (int i = 0; i < MAX_LEVELS; i++) {
+            levels.add(new ArrayList<>());
+        }
+        Set<Path> live = new HashSet<>();
+        Path manifest = dir.resolve(MANIFEST);
+        if (Files.exists(manifest)){
+            ByteBuffer in = SnapshotFile.open(manifest, SnapshotFile.TYPE_MANIFEST);
+            try {
+                int n = in.getInt();
+                if (n != MAX_LEVELS){
+                    throw new IOException("manifest has " + n + " levels, expected " + MAX_LEVELS);
+                }
+                nextFileNumber = in.getLong();
+                for (int i = 0; i < n; i++) {
+                    int count = in.getInt();
+                    for (int j = 0; j < count; j++) {
+                        long number = in.getLong();
+                        Path file = tableFile(number);
+                        levels.get(i).add(SSTable.open(number, file, keyCodec, valCodec));
+                        live.add(file.getFileName());
+                    }
+                }
+            }catch (BufferUnderflowException e){
+                throw new IOException("truncated manifest: " + manifest, e);
+            }
+        }
+        // 不在清单中的文件：崩溃时没有完成的刷盘或合并的输出
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.sst")) {
+            for (Path file : files) {
+                if (!live.contains(file.getFileName())){
+                    Files.delete(file);
+                }
+            }
+        }
+        return new Version(levels);
+    }
+
+    // 把memtable刷盘，等后台线程结束；正在进行的合并会先做完
+    @Override
+    public void close() throws IOException{
+        synchronized (this){
+            if (closed) return;
+            if (failure == null && !memtable.isEmpty()){
+                rotate(true);
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+            compactor.join();
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while closing");
+        }
+        synchronized (this){
+            if (failure != null) throw failure;
+        }
+    }
+
+
+    public static void main(String[] args) throws IOException{
+        Path dir = args.length > 0 ? Paths.get(args[0]) : Files.createTempDirectory("lsm");
+        Random random = new Random(42);
+
+        // 很小的memtable和文件，让数据很快落到好几层
+        try (LSMTree<Integer, String> st = new LSMTree<>(dir, Codecs.INT, Codecs.STRING, 4096, 64 << 10)) {
+            for (int i = 0; i < 200000; i++) {
+                int k = random.nextInt(100000);
+                st.put(k, "v" + k);
+            }
+            for (int k = 0; k < 100000; k += 3) {
+                st.delete(k);
+            }
+            st.flush();
+            for (int i = 0; i < MAX_LEVELS; i++) {
+                System.out.print("L" + i + "=" + st.tableCount(i) + " ");
+            }
+            System.out.println();
+            System.out.println("st.get(1) = " + st.get(1));
+            System.out.println("st.get(3) = " + st.get(3));
+        }
+
+        // 重新打开：各层由清单恢复
+        try (LSMTree<Integer, String> st = new LSMTree<>(dir, Codecs.INT, Codecs.STRING, 4096, 64 << 10)) {
+            System.out.println("st.get(1) = " + st.get(1));
+            System.out.print("keys(10, 30) = ");
+            for (Integer k : st.keys(10, 30)) {
+                System.out.print(k + " ");
+            }
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package LSM;
+
+import PriorityQueue.MinPQ;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * 多路归并：每个输入按键递增，用 MinPQ 每次取出最小的键，O(log k)
+ *
+ * 同一个键出现在多个输入中时只保留最新的那个（inputs中下标越小越新），其余的跳过。
+ * dropTombstones 为true时不返回删除标记（范围查询、合并到最底层时），否则原样返回
+ */
+class MergingIterator<Key extends Comparable<Key>, Value> implements Iterator<Map.Entry<Key, Value>> {
+    private final MinPQ<Cursor> pq;
+    private final Key hi;                   // 为null时不设上界
+    private final boolean dropTombstones;
+    private Map.Entry<Key, Value> next;
+
+    // 一个输入的当前位置；键相同时age小（新）的在前
+    private class Cursor implements Comparable<Cursor> {
+        private final Iterator<Map.Entry<Key, Value>> it;
+        private final int age;
+        private Map.Entry<Key, Value> current;
+
+        Cursor(Iterator<Map.Entry<Key, Value>> it, int age){
+            this.it = it;
+            this.age = age;
+            this.current = it.next();
+        }
+
+        boolean advance(){
+            if (!it.hasNext()){
+                return false;
+            }
+            current = it.next();
+            return true;
+        }
+
+        @Override
+        public int compareTo(Cursor that){
+            int cmp = current.getKey().compareTo(that.current.getKey());
+            return cmp != 0 ? cmp : Integer.compare(age, that.age);
+        }
+    }
+
+    MergingIterator(List<Iterator<Map.Entry<Key, Value>>> inputs, Key hi, boolean dropTombstones){
+        this.hi = hi;
+        this.dropTombstones = dropTombstones;
+        this.pq = new MinPQ<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            Iterator<Map.Entry<Key, Value>> it = inputs.get(i);
+            if (it.hasNext()){
+                pq.insert(new Cursor(it, i));
+            }
+        }
+        next = advance();
+    }
+
+    private Map.Entry<Key, Value> advance(){
+        while (!pq.isEmpty()){
+            Cursor c = pq.delMin();
+            Map.Entry<Key, Value> e = c.current;
+            if (hi != null && e.getKey().compareTo(hi) > 0){
+                return null;
+            }
+            if (c.advance()){
+                pq.insert(c);
+            }
+            // 跳过更老的输入中的同一个键
+            while (!pq.isEmpty() && pq.min().current.getKey().compareTo(e.getKey()) == 0){
+                Cursor old = pq.delMin();
+                if (old.advance()){
+                    pq.insert(old);
+                }
+            }
+            if (e.getValue() != null || !dropTombstones){
+                return e;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean hasNext(){
+        return next != null;
+    }
+
+    @Override
+    public Map.Entry<Key, Value> next(){
+        if (next == null) throw new NoSuchElementException();
+        Map.Entry<Key, Value> e = next;
+        next = advance();
+        return e;
+    }
+}
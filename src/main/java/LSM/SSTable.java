@@ -0,0 +1,336 @@
+package LSM;
+
+import Snapshot.Codec;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * 不可变的有序文件（sorted string table），写完之后只读，整个文件映射到内存
+ *
+ *   数据区 : 按键递增排列的记录 flag(1) | key | val，flag 为 TOMBSTONE 时没有 val
+ *   索引区 : n(4) | n 个 (key | offset(4))，稀疏索引，每 INDEX_INTERVAL 条记录取一条
+ *   过滤器 : BloomFilter
+ *   尾部   : count(4) | indexOffset(4) | bloomOffset(4) | magic(4)
+ *
+ * (1) 查找先问布隆过滤器，大部分不存在的键不会读数据区；再在稀疏索引上二分找到所在的段，
+ *     最多顺序解码 INDEX_INTERVAL 条记录
+ * (2) 稀疏索引和布隆过滤器在打开时解码到堆上，数据区留在映射的页缓存中，由操作系统决定哪些页常驻内存
+ * (3) 值为null表示删除标记（tombstone），它遮住更老的文件中同一个键的值
+ */
+class SSTable<Key extends Comparable<Key>, Value> {
+    private static final byte VALUE = 0;
+    private static final byte TOMBSTONE = 1;
+    private static final int MAGIC = 0x53535442;   // "SSTB"
+    private static final int FOOTER_BYTES = 16;
+    private static final int INDEX_INTERVAL = 16;
+    private static final int BLOOM_BITS_PER_KEY = 10;
+
+    // get的返回值：键不在这个文件中
+    static final Object ABSENT = new Object();
+
+    final long number;                  // 文件编号，越大越新
+    private final Path file;
+    private final ByteBuffer data;      // 只读映射，每次读取用duplicate，多个线程可以同时读
+    private final Codec<Key> keyCodec;
+    private final Codec<Value> valCodec;
+
+    private final int count;
+    private final int dataEnd;
+    private final ArrayList<Key> indexKeys = new ArrayList<>();
+    private final int[] indexOffsets;
+    private final BloomFilter bloom;
+    private final Key minKey, maxKey;
+
+    private SSTable(long number, Path file, Codec<Key> keyCodec, Codec<Value> valCodec) throws IOException{
+        this.number = number;
+        this.file = file;
+        this.keyCodec = keyCodec;
+        this.valCodec = valCodec;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < FOOTER_BYTES || size > Integer.MAX_VALUE){
+                throw new IOException("bad table size " + size + ": " + file);
+            }
+            data = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        // 损坏的文件在解码时越界，统一报告为IOException
+        try {
+            ByteBuffer in = data.duplicate();
+            in.position(in.capacity() - FOOTER_BYTES);
+            count = in.getInt();
+            dataEnd = in.getInt();
+            int bloomOffset = in.getInt();
+            if (in.getInt() != MAGIC){
+                throw new IOException("not a table file: " + file);
+            }
+
+            in.position(dataEnd);
+            int n = in.getInt();
+            indexOffsets = new int[n];
+            for (int i = 0; i < n; i++) {
+                indexKeys.add(keyCodec.decode(in));
+                indexOffsets[i] = in.getInt();
+            }
+            in.position(bloomOffset);
+            bloom = BloomFilter.read(in);
+
+            // 最小键是第一个索引项；最大键在最后一段中，顺序解码到数据区末尾
+            Key last = null;
+            if (n > 0){
+                in.position(indexOffsets[n - 1]);
+                while (in.position() < dataEnd){
+                    last = readEntryKey(in);
+                }
+            }
+            minKey = n > 0 ? indexKeys.get(0) : null;
+            maxKey = last;
+        }catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e){
+            throw new IOException("corrupt table: " + file, e);
+        }
+    }
+
+    static <K extends Comparable<K>, V> SSTable<K, V> open(long number, Path file, Codec<K> keyCodec, Codec<V> valCodec) throws IOException{
+        return new SSTable<>(number, file, keyCodec, valCodec);
+    }
+
+    int size(){
+        return count;
+    }
+
+    long bytes(){
+        return data.capacity();
+    }
+
+    Key minKey(){
+        return minKey;
+    }
+
+    Key maxKey(){
+        return maxKey;
+    }
+
+    Path file(){
+        return file;
+    }
+
+    // [lo, hi]与文件中键的范围是否相交
+    boolean overlaps(Key lo, Key hi){
+        return count > 0 && lo.compareTo(maxKey) <= 0 && hi.compareTo(minKey) >= 0;
+    }
+
+    // 读出一条记录的键并跳过它的值
+    private Key readEntryKey(ByteBuffer in){
+        byte flag = in.get();
+        Key key = keyCodec.decode(in);
+        if (flag == VALUE){
+            valCodec.decode(in);
+        }
+        return key;
+    }
+
+    // 稀疏索引中最后一个 <= key 的索引项，key比所有键都小时返回-1
+    private int floorIndex(Key key){
+        int lo = 0, hi = indexKeys.size() - 1;
+        while (lo <= hi){
+            int mid = (lo + hi) >>> 1;
+            if (indexKeys.get(mid).compareTo(key) <= 0){
+                lo = mid + 1;
+            }else {
+                hi = mid - 1;
+            }
+        }
+        return hi;
+    }
+
+    // 返回值，null为删除标记，不存在时返回ABSENT；hash为键编码后的哈希（见 hash）
+    Object get(Key key, long hash){
+        if (count == 0 || !bloom.mightContain(hash)){
+            return ABSENT;
+        }
+        int i = floorIndex(key);
+        if (i < 0){
+            return ABSENT;
+        }
+        ByteBuffer in = data.duplicate();
+        in.position(indexOffsets[i]);
+        int end = (i + 1 < indexOffsets.length) ? indexOffsets[i + 1] : dataEnd;
+        while (in.position() < end){
+            byte flag = in.get();
+            int cmp = keyCodec.decode(in).compareTo(key);
+            if (cmp == 0){
+                return flag == VALUE ? valCodec.decode(in) : null;
+            }
+            if (cmp > 0){
+                break;
+            }
+            if (flag == VALUE){
+                valCodec.decode(in);
+            }
+        }
+        return ABSENT;
+    }
+
+    // 从第一个 >= lo 的键开始按顺序返回记录，值为null表示删除标记；lo为null时从头开始
+    Iterator<Map.Entry<Key, Value>> iterator(Key lo){
+        ByteBuffer in = data.duplicate();
+        int i = (lo == null) ? -1 : floorIndex(lo);
+        in.position(i < 0 ? 0 : indexOffsets[i]);
+        in.limit(dataEnd);
+        return new Iterator<Map.Entry<Key, Value>>() {
+            private Map.Entry<Key, Value> next = advance();
+
+            private Map.Entry<Key, Value> advance(){
+                while (in.hasRemaining()){
+                    byte flag = in.get();
+                    Key key = keyCodec.decode(in);
+                    Value val = (flag == VALUE) ? valCodec.decode(in) : null;
+                    if (lo == null || key.compareTo(lo) >= 0){
+                        return new AbstractMap.SimpleImmutableEntry<>(key, val);
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext(){
+                return next != null;
+            }
+
+            @Override
+            public Map.Entry<Key, Value> next(){
+                if (next == null) throw new NoSuchElementException();
+                Map.Entry<Key, Value> e = next;
+                next = advance();
+                return e;
+            }
+        };
+    }
+
+    void delete() throws IOException{
+        // 已经映射的内容在删除文件之后仍然可读，正在读这个文件的线程不受影响
+        Files.deleteIfExists(file);
+    }
+
+    // 键编码后的字节的哈希，布隆过滤器的输入
+    static <K> long hash(Codec<K> keyCodec, K key){
+        Scratch b = new Scratch();
+        try {
+            keyCodec.encode(key, new DataOutputStream(b));
+        }catch (IOException e){
+            throw new IllegalStateException(e);
+        }
+        return BloomFilter.hash(b.array(), 0, b.size());
+    }
+
+    private static final class Scratch extends ByteArrayOutputStream {
+        byte[] array(){
+            return buf;
+        }
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 写文件：按键严格递增的顺序add，finish之后文件才完整
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    static final class Writer<Key extends Comparable<Key>, Value> {
+        private final long number;
+        private final Path file;
+        private final Codec<Key> keyCodec;
+        private final Codec<Value> valCodec;
+        private final FileOutputStream fos;
+        private final DataOutputStream out;
+        private final Scratch key = new Scratch();
+        private final DataOutputStream keyOut = new DataOutputStream(key);
+        private final BloomFilter bloom;
+        private final ByteArrayOutputStream index = new ByteArrayOutputStream();
+        private final DataOutputStream indexOut = new DataOutputStream(index);
+        private int count;
+        private int indexCount;
+
+        Writer(long number, Path file, int expectedKeys, Codec<Key> keyCodec, Codec<Value> valCodec) throws IOException{
+            this.number = number;
+            this.file = file;
+            this.keyCodec = keyCodec;
+            this.valCodec = valCodec;
+            this.fos = new FileOutputStream(file.toFile());
+            this.out = new DataOutputStream(new BufferedOutputStream(fos, 1 << 16));
+            this.bloom = new BloomFilter(expectedKeys, BLOOM_BITS_PER_KEY);
+        }
+
+        // val为null时写入删除标记
+        void add(Key k, Value val) throws IOException{
+            key.reset();
+            keyCodec.encode(k, keyOut);
+            if (count % INDEX_INTERVAL == 0){
+                indexOut.write(key.array(), 0, key.size());
+                indexOut.writeInt(out.size());
+                indexCount++;
+            }
+            bloom.add(BloomFilter.hash(key.array(), 0, key.size()));
+            out.writeByte(val == null ? TOMBSTONE : VALUE);
+            out.write(key.array(), 0, key.size());
+            if (val != null){
+                valCodec.encode(val, out);
+            }
+            count++;
+            // DataOutputStream的计数到 Integer.MAX_VALUE 后不再增加
+            if (out.size() == Integer.MAX_VALUE){
+                throw new IOException("table larger than 2GB: " + file);
+            }
+        }
+
+        // 已写入的字节数
+        long bytes(){
+            return out.size();
+        }
+
+        int size(){
+            return count;
+        }
+
+        // 写出索引、过滤器和尾部，fsync后打开为只读的SSTable
+        SSTable<Key, Value> finish() throws IOException{
+            int indexOffset = out.size();
+            out.writeInt(indexCount);
+            index.writeTo(out);
+            int bloomOffset = out.size();
+            bloom.write(out);
+            out.writeInt(count);
+            out.writeInt(indexOffset);
+            out.writeInt(bloomOffset);
+            out.writeInt(MAGIC);
+            out.flush();
+            fos.getChannel().force(true);
+            out.close();
+            return SSTable.open(number, file, keyCodec, valCodec);
+        }
+
+        // 放弃写了一半的文件
+        void abort(){
+            try {
+                out.close();
+            }catch (IOException ignored){
+            }
+            try {
+                Files.deleteIfExists(file);
+            }catch (IOException ignored){
+            }
+        }
+    }
+}
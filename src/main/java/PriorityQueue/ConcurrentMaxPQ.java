@@ -0,0 +1,184 @@
+package PriorityQueue;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 线程安全的最大优先队列（MultiQueue），用于多生产者/多消费者
+ *
+ * 内部有c个 MaxPQ 子队列，每个子队列一把锁，并缓存它当前的堆顶（tops，只在持有该子队列的锁时更新）
+ * (1) insert: 随机选一个子队列，tryLock 成功就插入，失败就换一个，线程之间很少争用同一把锁
+ * (2) delMax 有两种排序模式：
+ *     RELAXED: 随机选两个子队列，比较缓存的堆顶（不加锁），只锁住堆顶较大的那个并删除它的最大元素。
+ *              返回的不一定是全局最大元素，但期望的排名误差为 O(c)，删除与插入一样可以随核数扩展
+ *     STRICT : 按下标顺序锁住所有子队列，删除全局最大元素（可线性化，与一把全局锁的 MaxPQ 语义相同）。
+ *              插入仍然是分散的，但删除之间互斥
+ * 队列为空时 delMax 返回null而不是抛出异常：并发环境下先 isEmpty 再 delMax 不是原子的
+ */
+public class ConcurrentMaxPQ<Key extends Comparable<Key>> {
+    public enum Ordering {
+        RELAXED, STRICT
+    }
+
+    // insert 连续 tryLock 失败这么多次后改为阻塞加锁
+    private static final int MAX_TRY = 8;
+
+    private final MaxPQ<Key>[] queues;
+    private final ReentrantLock[] locks;
+    private final AtomicReferenceArray<Key> tops;   // 各子队列的堆顶，子队列为空时为null
+    private final Ordering ordering;
+    private final LongAdder size = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentMaxPQ(int c, Ordering ordering){
+        if (c < 1) throw new IllegalArgumentException("number of sub-queues must be positive: " + c);
+        this.ordering = ordering;
+        queues = (MaxPQ<Key>[]) new MaxPQ[c];
+        locks = new ReentrantLock[c];
+        for (int i = 0; i < c; i++) {
+            queues[i] = new MaxPQ<>();
+            locks[i] = new ReentrantLock();
+        }
+        tops = new AtomicReferenceArray<>(c);
+    }
+
+    // 默认每个核两个子队列
+    public ConcurrentMaxPQ(Ordering ordering){
+        this(2 * Runtime.getRuntime().availableProcessors(), ordering);
+    }
+
+    public ConcurrentMaxPQ(){
+        this(Ordering.RELAXED);
+    }
+
+    public Ordering ordering(){
+        return ordering;
+    }
+
+    // 并发修改时只是一个近似值
+    public int size(){
+        return (int) size.sum();
+    }
+
+    public boolean isEmpty(){
+        return size.sum() == 0;
+    }
+
+    public void insert(Key v){
+        if (v == null) throw new IllegalArgumentException("calls insert() with a null key");
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int c = queues.length;
+        for (int t = 0; ; t++) {
+            int i = random.nextInt(c);
+            ReentrantLock lock = locks[i];
+            if (t < MAX_TRY){
+                if (!lock.tryLock()){
+                    continue;
+                }
+            }else {
+                lock.lock();
+            }
+            try {
+                queues[i].insert(v);
+                tops.set(i, queues[i].max());
+            } finally {
+                lock.unlock();
+            }
+            size.increment();
+            return;
+        }
+    }
+
+    /**
+     * 删除最大元素，队列为空时返回null；RELAXED 模式下为近似最大
+     * */
+    public Key delMax(){
+        return ordering == Ordering.STRICT ? delMaxStrict() : delMaxRelaxed();
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * RELAXED：两个随机选择
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    private Key delMaxRelaxed(){
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int c = queues.length;
+        while (true){
+            int i = random.nextInt(c);
+            int j = random.nextInt(c);
+            Key a = tops.get(i), b = tops.get(j);
+            if (a == null && b == null){
+                // 两个都为空时扫描所有子队列，全部为空才认为队列为空
+                i = nonEmpty(random.nextInt(c));
+                if (i < 0){
+                    return null;
+                }
+            }else if (a == null || (b != null && a.compareTo(b) < 0)){
+                i = j;
+            }
+
+            ReentrantLock lock = locks[i];
+            if (!lock.tryLock()){
+                continue;
+            }
+            try {
+                // 选中之后子队列可能已经被其他线程取空
+                if (queues[i].isEmpty()){
+                    continue;
+                }
+                Key max = queues[i].delMax();
+                tops.set(i, queues[i].isEmpty() ? null : queues[i].max());
+                size.decrement();
+                return max;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // 从start开始找一个堆顶不为null的子队列，没有时返回-1
+    private int nonEmpty(int start){
+        int c = queues.length;
+        for (int k = 0; k < c; k++) {
+            int i = (start + k) % c;
+            if (tops.get(i) != null){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * STRICT：按固定顺序锁住所有子队列（不会死锁），取全局最大
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    private Key delMaxStrict(){
+        int c = queues.length;
+        for (int i = 0; i < c; i++) {
+            locks[i].lock();
+        }
+        try {
+            int best = -1;
+            for (int i = 0; i < c; i++) {
+                if (!queues[i].isEmpty() && (best < 0 || queues[best].max().compareTo(queues[i].max()) < 0)){
+                    best = i;
+                }
+            }
+            if (best < 0){
+                return null;
+            }
+            Key max = queues[best].delMax();
+            tops.set(best, queues[best].isEmpty() ? null : queues[best].max());
+            size.decrement();
+            return max;
+        } finally {
+            for (int i = c - 1; i >= 0; i--) {
+                locks[i].unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package PriorityQueue;
+
+import java.util.NoSuchElementException;
+
+/**
+ * d叉最小堆，API与 MinPQ 相同
+ *
+ * 每个结点有d个孩子，树高从 lgN 降为 log_d(N)：delMin 的下沉层数更少（每层要在d个孩子中选最小者），
+ * 当堆远大于缓存时，每一层都是一次缓存未命中，减少层数即减少未命中次数。
+ *
+ * 布局：根结点存放在 pq[d-1]，逻辑位置k（根为0）的元素存放在 pq[k + d - 1]，
+ *      这样任意结点的d个孩子都从d的整数倍处开始，位于 pq[d*(p-d+2) .. d*(p-d+2)+d-1]，
+ *      一组兄弟结点的引用在数组中连续存放，d取4或8时只占16~64字节，通常落在一到两个缓存行中
+ *      （数组对象头使元素不一定从缓存行边界开始）。pq中存的是引用，比较时每个孩子的 Key 对象
+ *      仍是各自独立的一次内存访问，减少的只是引用数组这一侧的未命中
+ * d必须为2的幂，乘除用移位代替。容量策略与 MinPQ 相同
+ */
+public class DaryMinPQ<Key extends Comparable<Key>> {
+    private Key[] pq;
+    private int N = 0;
+    private final int d;          // 每个结点的孩子数
+    private final int shift;      // log2(d)
+
+    @SuppressWarnings("unchecked")
+    public DaryMinPQ(int d, int maxN){
+        if (d < 2 || (d & (d - 1)) != 0) throw new IllegalArgumentException("d must be a power of two >= 2: " + d);
+        this.d = d;
+        this.shift = Integer.numberOfTrailingZeros(d);
+        pq = (Key[]) new Comparable[Math.max(maxN, 1) + d - 1];
+    }
+
+    public DaryMinPQ(int d){
+        this(d, 1);
+    }
+
+    public boolean isEmpty(){
+        return N == 0;
+    }
+
+    public int size(){
+        return N;
+    }
+
+    public int arity(){
+        return d;
+    }
+
+    // 最后一个元素的位置
+    private int last(){
+        return N + d - 2;
+    }
+
+    private int parent(int p){
+        return (p >>> shift) + d - 2;
+    }
+
+    private int firstChild(int p){
+        return (p - d + 2) << shift;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resize(int capacity){
+        Key[] temp = (Key[]) new Comparable[capacity + d - 1];
+        System.arraycopy(pq, d - 1, temp, d - 1, N);
+        pq = temp;
+    }
+
+    private boolean greater(Key a, Key b){
+        return a.compareTo(b) > 0;
+    }
+
+    private void swim(int p){
+        Key v = pq[p];
+        int root = d - 1;
+        while (p > root){
+            int parent = parent(p);
+            if (!greater(pq[parent], v)){
+                break;
+            }
+            pq[p] = pq[parent];
+            p = parent;
+        }
+        pq[p] = v;
+    }
+
+    private void sink(int p){
+        Key v = pq[p];
+        int last = last();
+        while (true){
+            int c = firstChild(p);
+            if (c > last){
+                break;
+            }
+            // 在同一组兄弟结点中找出最小者
+            int end = Math.min(c + d - 1, last);
+            int j = c;
+            for (int i = c + 1; i <= end; i++) {
+                if (greater(pq[j], pq[i])){
+                    j = i;
+                }
+            }
+            if (!greater(v, pq[j])){
+                break;
+            }
+            pq[p] = pq[j];
+            p = j;
+        }
+        pq[p] = v;
+    }
+
+    public void insert(Key v){
+        if (N == pq.length - d + 1){
+            resize(2 * N);
+        }
+        N++;
+        pq[last()] = v;
+        swim(last());
+    }
+
+    public Key min(){
+        if (isEmpty()) throw new NoSuchElementException("Priority queue underflow");
+        return pq[d - 1];
+    }
+
+    public Key delMin(){
+        if (isEmpty()) throw new NoSuchElementException("Priority queue underflow");
+        int root = d - 1;
+        Key min = pq[root];
+        int last = last();
+        pq[root] = pq[last];
+        pq[last] = null;
+        N--;
+        if (N > 0){
+            sink(root);
+        }
+        if (N > 0 && N == (pq.length - d + 1) / 4){
+            resize((pq.length - d + 1) / 2);
+        }
+        return min;
+    }
+}
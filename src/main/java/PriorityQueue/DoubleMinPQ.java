@@ -0,0 +1,89 @@
+package PriorityQueue;
+
+import java.util.NoSuchElementException;
+
+/**
+ * double 元素的最小堆：元素直接存放在 double[] 中，不装箱
+ *
+ * 与 MinPQ<Double> 相比，每个元素只占8个字节（MinPQ中为一个引用加一个Double对象），
+ * 且 swim/sink 中的比较是基本类型比较，没有 compareTo 的虚方法调用。容量策略与 MinPQ 相同
+ * 元素之间直接用 < > 比较，因此不接受NaN
+ * swim/sink 中先取出待移动的元素，沿途只把父/子结点移过来，最后再放回，每层只写一次数组（代替exch）
+ */
+public class DoubleMinPQ {
+    private double[] pq;
+    private int N = 0;
+
+    public DoubleMinPQ(int minN){
+        pq = new double[Math.max(minN, 1) + 1];
+    }
+
+    public DoubleMinPQ(){
+        this(1);
+    }
+
+    private void resize(int capacity){
+        double[] temp = new double[capacity + 1];
+        System.arraycopy(pq, 1, temp, 1, N);
+        pq = temp;
+    }
+
+    public boolean isEmpty(){
+        return N == 0;
+    }
+
+    public int size(){
+        return N;
+    }
+
+    private void swim(int k){
+        double v = pq[k];
+        while (k > 1 && pq[k/2] > v){
+            pq[k] = pq[k/2];
+            k = k/2;
+        }
+        pq[k] = v;
+    }
+
+    private void sink(int k){
+        double v = pq[k];
+        while (2*k <= N){
+            int j = 2*k;
+            // 找出孩子中较小者
+            if (j < N && pq[j] > pq[j+1]){
+                j++;
+            }
+            if (v <= pq[j]){
+                break;
+            }
+            pq[k] = pq[j];
+            k = j;
+        }
+        pq[k] = v;
+    }
+
+    public void insert(double v){
+        if (Double.isNaN(v)) throw new IllegalArgumentException("calls insert() with NaN");
+        if (N == pq.length - 1){
+            resize(2 * (pq.length - 1));
+        }
+        pq[++N] = v;
+        swim(N);
+    }
+
+    public double min(){
+        if (isEmpty()) throw new NoSuchElementException("Priority queue underflow");
+        return pq[1];
+    }
+
+    public double delMin(){
+        if (isEmpty()) throw new NoSuchElementException("Priority queue underflow");
+        double min = pq[1];
+        pq[1] = pq[N--];
+        sink(1);
+        if (N > 0 && N == (pq.length - 1) / 4){
+            resize((pq.length - 1) / 2);
+        }
+        return min;
+    }
+}
@@ -0,0 +1,175 @@
+package PriorityQueue;
+
+import java.util.NoSuchElementException;
+
+/**
+ * 索引优先队列（最小堆）：每个元素关联一个 [0, maxN) 之间的整数索引，可以通过索引修改或删除元素
+ *
+ * pq[]   : 堆，pq[k] 为堆中位置k上元素的索引，与 MinPQ 中的 pq 相对应
+ * qp[]   : pq 的逆数组，qp[i] 为索引i在堆中的位置，qp[pq[k]] = pq[qp[i]] = k，不在队列中时为-1
+ * keys[] : keys[i] 为索引i对应的元素
+ *
+ * 通过 qp 可以在 O(1) 内找到索引对应的堆位置，之后 swim/sink 即可完成 changeKey/delete，均为 O(logN)
+ */
+public class IndexMinPQ<Key extends Comparable<Key>> {
+    private int maxN;
+    private int N = 0;
+    private int[] pq;
+    private int[] qp;
+    private Key[] keys;
+
+    @SuppressWarnings("unchecked")
+    public IndexMinPQ(int maxN){
+        if (maxN < 0) throw new IllegalArgumentException();
+        this.maxN = maxN;
+        keys = (Key[]) new Comparable[maxN + 1];
+        pq = new int[maxN + 1];
+        qp = new int[maxN + 1];
+        for (int i = 0; i <= maxN; i++) {
+            qp[i] = -1;
+        }
+    }
+
+    public boolean isEmpty(){
+        return N == 0;
+    }
+
+    public int size(){
+        return N;
+    }
+
+    private void validateIndex(int i){
+        if (i < 0 || i >= maxN) throw new IllegalArgumentException("index is out of range: " + i);
+    }
+
+    public boolean contains(int i){
+        validateIndex(i);
+        return qp[i] != -1;
+    }
+
+    private boolean greater(int i, int j){
+        return keys[pq[i]].compareTo(keys[pq[j]]) > 0;
+    }
+
+    private void exch(int i, int j){
+        int t = pq[i];
+        pq[i] = pq[j];
+        pq[j] = t;
+        qp[pq[i]] = i;
+        qp[pq[j]] = j;
+    }
+
+    private void swim(int k){
+        while (k > 1 && greater(k/2, k)){
+            exch(k, k/2);
+            k = k/2;
+        }
+    }
+
+    private void sink(int k){
+        while (2*k <= N){
+            int j = 2*k;
+            // 找出孩子中较小者
+            if (j < N && greater(j, j+1)){
+                j++;
+            }
+            if (!greater(k, j)){
+                break;
+            }
+            exch(k, j);
+            k = j;
+        }
+    }
+
+    /**
+     * 插入元素: 将索引i与元素key关联
+     * */
+    public void insert(int i, Key key){
+        validateIndex(i);
+        if (contains(i)) throw new IllegalArgumentException("index is already in the priority queue: " + i);
+        N++;
+        qp[i] = N;
+        pq[N] = i;
+        keys[i] = key;
+        swim(N);
+    }
+
+    // 最小元素的索引
+    public int minIndex(){
+        if (N == 0) throw new NoSuchElementException("Priority queue underflow");
+        return pq[1];
+    }
+
+    // 最小元素
+    public Key minKey(){
+        if (N == 0) throw new NoSuchElementException("Priority queue underflow");
+        return keys[pq[1]];
+    }
+
+    /**
+     * 删除最小元素，返回它的索引
+     * */
+    public int delMin(){
+        if (N == 0) throw new NoSuchElementException("Priority queue underflow");
+        int min = pq[1];
+        exch(1, N--);
+        sink(1);
+        qp[min] = -1;
+        keys[min] = null;
+        pq[N+1] = -1;
+        return min;
+    }
+
+    public Key keyOf(int i){
+        validateIndex(i);
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue: " + i);
+        return keys[i];
+    }
+
+    /**
+     * 将索引i对应的元素改为key：新元素可能变大也可能变小，上浮和下沉各做一次（只有一个会真正移动）
+     * */
+    public void changeKey(int i, Key key){
+        validateIndex(i);
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue: " + i);
+        keys[i] = key;
+        swim(qp[i]);
+        sink(qp[i]);
+    }
+
+    // 将索引i对应的元素减小为key，只需上浮（Dijkstra中的松弛操作）
+    public void decreaseKey(int i, Key key){
+        validateIndex(i);
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue: " + i);
+        if (keys[i].compareTo(key) < 0){
+            throw new IllegalArgumentException("calling decreaseKey() with a key strictly greater than the key in the priority queue");
+        }
+        keys[i] = key;
+        swim(qp[i]);
+    }
+
+    // 将索引i对应的元素增大为key，只需下沉
+    public void increaseKey(int i, Key key){
+        validateIndex(i);
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue: " + i);
+        if (keys[i].compareTo(key) > 0){
+            throw new IllegalArgumentException("calling increaseKey() with a key strictly less than the key in the priority queue");
+        }
+        keys[i] = key;
+        sink(qp[i]);
+    }
+
+    /**
+     * 删除索引i对应的元素: 与堆的最后一个元素交换后删除，被换过来的元素可能需要上浮或下沉
+     * */
+    public void delete(int i){
+        validateIndex(i);
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue: " + i);
+        int index = qp[i];
+        exch(index, N--);
+        swim(index);
+        sink(index);
+        keys[i] = null;
+        qp[i] = -1;
+    }
+}
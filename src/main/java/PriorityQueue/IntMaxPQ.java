@@ -0,0 +1,87 @@
+package PriorityQueue;
+
+import java.util.NoSuchElementException;
+
+/**
+ * int 元素的最大堆：元素直接存放在 int[] 中，不装箱
+ *
+ * 与 MaxPQ<Integer> 相比，每个元素只占4个字节（MaxPQ中为一个引用加一个Integer对象），
+ * 且 swim/sink 中的比较是基本类型比较，没有 compareTo 的虚方法调用。容量策略与 MaxPQ 相同
+ * swim/sink 中先取出待移动的元素，沿途只把父/子结点移过来，最后再放回，每层只写一次数组（代替exch）
+ */
+public class IntMaxPQ {
+    private int[] pq;
+    private int N = 0;
+
+    public IntMaxPQ(int maxN){
+        pq = new int[Math.max(maxN, 1) + 1];
+    }
+
+    public IntMaxPQ(){
+        this(1);
+    }
+
+    private void resize(int capacity){
+        int[] temp = new int[capacity + 1];
+        System.arraycopy(pq, 1, temp, 1, N);
+        pq = temp;
+    }
+
+    public boolean isEmpty(){
+        return N == 0;
+    }
+
+    public int size(){
+        return N;
+    }
+
+    private void swim(int k){
+        int v = pq[k];
+        while (k > 1 && pq[k/2] < v){
+            pq[k] = pq[k/2];
+            k = k/2;
+        }
+        pq[k] = v;
+    }
+
+    private void sink(int k){
+        int v = pq[k];
+        while (2*k <= N){
+            int j = 2*k;
+            // 找出孩子中较大者
+            if (j < N && pq[j] < pq[j+1]){
+                j++;
+            }
+            if (v >= pq[j]){
+                break;
+            }
+            pq[k] = pq[j];
+            k = j;
+        }
+        pq[k] = v;
+    }
+
+    public void insert(int v){
+        if (N == pq.length - 1){
+            resize(2 * (pq.length - 1));
+        }
+        pq[++N] = v;
+        swim(N);
+    }
+
+    public int max(){
+        if (isEmpty()) throw new NoSuchElementException("Priority queue underflow");
+        return pq[1];
+    }
+
+    public int delMax(){
+        if (isEmpty()) throw new NoSuchElementException("Priority queue underflow");
+        int max = pq[1];
+        pq[1] = pq[N--];
+        sink(1);
+        if (N > 0 && N == (pq.length - 1) / 4){
+            resize((pq.length - 1) / 2);
+        }
+        return max;
+    }
+}
@@ -1,11 +1,27 @@
 package PriorityQueue;
 
+import java.util.NoSuchElementException;
+
 public class MaxPQ<Key extends Comparable<Key>> {
     private Key[] pq;
     private int N = 0;
 
+    // 初始容量，容量不够时自动扩容为2倍，元素个数降到容量的1/4时缩容为1/2
     public MaxPQ(int maxN){
-        pq = (Key[]) new Comparable[maxN + 1];
+        pq = (Key[]) new Comparable[Math.max(maxN, 1) + 1];
+    }
+
+    public MaxPQ(){
+        this(1);
+    }
+
+    // 将堆数组的容量调整为capacity，pq[0]不使用
+    private void resize(int capacity){
+        Key[] temp = (Key[]) new Comparable[capacity + 1];
+        for (int i = 1; i <= N; i++) {
+            temp[i] = pq[i];
+        }
+        pq = temp;
     }
 
     public boolean isEmpty(){
@@ -53,19 +69,32 @@ public class MaxPQ<Key extends Comparable<Key>> {
      * 将新元素加到数组末尾，增加堆的大小并让这个新元素上浮到合适的位置
      * */
     public void insert(Key v){
+        if (N == pq.length - 1){
+            resize(2 * (pq.length - 1));
+        }
         pq[++N] = v;
         swim(N);
     }
 
+    // 返回最大元素但不删除
+    public Key max(){
+        if (isEmpty()) throw new NoSuchElementException("Priority queue underflow");
+        return pq[1];
+    }
+
     /**
      * 删除最大元素:
      * 从数组顶端删去最大的元素并将数组的最后一个元素放到顶端，减小堆的大小并让这个元素下沉到合适的位置
      * */
     public Key delMax(){
+        if (isEmpty()) throw new NoSuchElementException("Priority queue underflow");
         Key max = pq[1];
         exch(1, N--);
         pq[N+1] = null;
         sink(1);
+        if (N > 0 && N == (pq.length - 1) / 4){
+            resize((pq.length - 1) / 2);
+        }
         return max;
     }
 }
@@ -1,11 +1,27 @@
 package PriorityQueue;
 
+import java.util.NoSuchElementException;
+
 public class MinPQ<Key extends Comparable<Key>> {
     private Key[] pq;
     private int N = 0;
 
+    // 初始容量，容量不够时自动扩容为2倍，元素个数降到容量的1/4时缩容为1/2
     public MinPQ(int minN){
-        pq = (Key[]) new Comparable[minN + 1];
+        pq = (Key[]) new Comparable[Math.max(minN, 1) + 1];
+    }
+
+    public MinPQ(){
+        this(1);
+    }
+
+    // 将堆数组的容量调整为capacity，pq[0]不使用
+    private void resize(int capacity){
+        Key[] temp = (Key[]) new Comparable[capacity + 1];
+        for (int i = 1; i <= N; i++) {
+            temp[i] = pq[i];
+        }
+        pq = temp;
     }
 
     public boolean isEmpty(){
@@ -48,15 +64,28 @@ public class MinPQ<Key extends Comparable<Key>> {
     }
 
     public void insert(Key v){
+        if (N == pq.length - 1){
+            resize(2 * (pq.length - 1));
+        }
         pq[++N] = v;
         swim(N);
     }
 
+    // 返回最小元素但不删除
+    public Key min(){
+        if (isEmpty()) throw new NoSuchElementException("Priority queue underflow");
+        return pq[1];
+    }
+
     public Key delMin(){
+        if (isEmpty()) throw new NoSuchElementException("Priority queue underflow");
         Key min = pq[1];
         exch(1, N--);
         pq[N+1] = null;
         sink(1);
+        if (N > 0 && N == (pq.length - 1) / 4){
+            resize((pq.length - 1) / 2);
+        }
         return min;
     }
 }
\ No newline at end of file
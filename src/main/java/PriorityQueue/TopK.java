@@ -0,0 +1,239 @@
+package PriorityQueue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * 流式Top-K：在任意长的输入中找出按比较器最大的k个元素，只占用 O(k) 的内存
+ *
+ * (1) 用一个大小为k的最小堆保存当前的Top-K，堆顶是其中最小的一个
+ * (2) 堆满之后，新元素不大于堆顶时直接丢弃，不做插入再删除（大部分元素在这一步就被过滤掉）；
+ *     大于堆顶时替换堆顶并下沉
+ * (3) 并行时每个线程维护自己的堆，最后将各个堆合并（merge），线程之间没有共享状态
+ *
+ * 求最小的k个元素时传入反序的比较器，例如 TopM 中的 Collections.reverseOrder()
+ */
+public class TopK<T> {
+    // 文件输入时每个分块的行数
+    private static final int CHUNK_LINES = 4096;
+
+    private final int k;
+    private final Comparator<? super T> comparator;
+    private final Object[] pq;    // 最小堆，pq[0]不使用
+    private int N = 0;
+
+    public TopK(int k, Comparator<? super T> comparator){
+        if (k < 1) throw new IllegalArgumentException("k must be positive: " + k);
+        this.k = k;
+        this.comparator = comparator;
+        this.pq = new Object[k + 1];
+    }
+
+    public int size(){
+        return N;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean greater(Object a, Object b){
+        return comparator.compare((T) a, (T) b) > 0;
+    }
+
+    private void swim(int i){
+        Object v = pq[i];
+        while (i > 1 && greater(pq[i/2], v)){
+            pq[i] = pq[i/2];
+            i = i/2;
+        }
+        pq[i] = v;
+    }
+
+    private void sink(int i){
+        Object v = pq[i];
+        while (2*i <= N){
+            int j = 2*i;
+            if (j < N && greater(pq[j], pq[j+1])){
+                j++;
+            }
+            if (!greater(v, pq[j])){
+                break;
+            }
+            pq[i] = pq[j];
+            i = j;
+        }
+        pq[i] = v;
+    }
+
+    /**
+     * 提交一个元素，返回它是否进入了当前的Top-K
+     * */
+    public boolean offer(T v){
+        if (N < k){
+            pq[++N] = v;
+            swim(N);
+            return true;
+        }
+        // 不能超过堆顶的元素直接丢弃
+        if (!greater(v, pq[1])){
+            return false;
+        }
+        pq[1] = v;
+        sink(1);
+        return true;
+    }
+
+    // 将另一个Top-K的结果合并进来
+    @SuppressWarnings("unchecked")
+    public TopK<T> merge(TopK<T> other){
+        for (int i = 1; i <= other.N; i++) {
+            offer((T) other.pq[i]);
+        }
+        return this;
+    }
+
+    /**
+     * 当前的Top-K，按比较器从大到小排列
+     * */
+    @SuppressWarnings("unchecked")
+    public List<T> toList(){
+        List<T> list = new ArrayList<>(N);
+        for (int i = 1; i <= N; i++) {
+            list.add((T) pq[i]);
+        }
+        list.sort(Collections.reverseOrder(comparator));
+        return list;
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 各种输入源
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+
+    // 迭代器：单线程
+    public static <T> List<T> top(Iterator<? extends T> it, int k, Comparator<? super T> comparator){
+        TopK<T> topK = new TopK<>(k, comparator);
+        while (it.hasNext()){
+            topK.offer(it.next());
+        }
+        return topK.toList();
+    }
+
+    // Stream：并行流会被拆分到多个线程中，每个线程一个堆，最后合并
+    public static <T> List<T> top(Stream<? extends T> stream, int k, Comparator<? super T> comparator){
+        return stream.collect(() -> new TopK<T>(k, comparator), TopK::offer, TopK::merge).toList();
+    }
+
+    /**
+     * 文件：当前线程按块读取行，threads个工作线程各自解析、各自维护一个堆，最后合并
+     * */
+    public static <T> List<T> top(Path file, int k, Function<String, ? extends T> parser,
+                                  Comparator<? super T> comparator, int threads) throws IOException {
+        if (threads < 1) throw new IllegalArgumentException("threads must be positive: " + threads);
+
+        // 有界队列：工作线程跟不上时读线程阻塞，内存中最多有 2*threads 个块
+        final BlockingQueue<List<String>> chunks = new ArrayBlockingQueue<>(2 * threads);
+        final List<String> end = new ArrayList<>();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        List<TopK<T>> partials = new ArrayList<>(threads);
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            final TopK<T> partial = new TopK<>(k, comparator);
+            partials.add(partial);
+            Thread worker = new Thread(() -> {
+                try {
+                    List<String> chunk;
+                    while ((chunk = chunks.take()) != end){
+                        // 其他线程已经失败时只消费不处理，保证读线程不会阻塞在满的队列上
+                        if (failure.get() != null){
+                            continue;
+                        }
+                        try {
+                            for (String line : chunk) {
+                                partial.offer(parser.apply(line));
+                            }
+                        } catch (Throwable e){
+                            failure.compareAndSet(null, e);
+                        }
+                    }
+                } catch (InterruptedException e){
+                    failure.compareAndSet(null, e);
+                }
+            }, "TopK-worker-" + t);
+            worker.start();
+            workers.add(worker);
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<String> chunk = new ArrayList<>(CHUNK_LINES);
+            String line;
+            while ((line = reader.readLine()) != null){
+                chunk.add(line);
+                if (chunk.size() == CHUNK_LINES){
+                    chunks.put(chunk);
+                    chunk = new ArrayList<>(CHUNK_LINES);
+                }
+            }
+            if (!chunk.isEmpty()){
+                chunks.put(chunk);
+            }
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        } finally {
+            // 工作线程在收到结束标记前一直在消费，所以这里的put最终总能成功
+            for (int t = 0; t < threads; t++) {
+                putUninterruptibly(chunks, end);
+            }
+        }
+
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, e);
+                break;
+            }
+        }
+
+        Throwable e = failure.get();
+        if (e != null){
+            throw new IllegalStateException("top-k over " + file + " failed", e);
+        }
+
+        TopK<T> result = partials.get(0);
+        for (int t = 1; t < threads; t++) {
+            result.merge(partials.get(t));
+        }
+        return result.toList();
+    }
+
+    private static <E> void putUninterruptibly(BlockingQueue<E> queue, E e){
+        boolean interrupted = false;
+        while (true){
+            try {
+                queue.put(e);
+                break;
+            } catch (InterruptedException ex){
+                interrupted = true;
+            }
+        }
+        if (interrupted){
+            Thread.currentThread().interrupt();
+        }
+    }
+}
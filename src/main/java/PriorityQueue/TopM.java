@@ -1,45 +1,26 @@
 package PriorityQueue;
 
-import edu.princeton.cs.algs4.Stack;
-import edu.princeton.cs.algs4.StdIn;
 import edu.princeton.cs.algs4.StdOut;
 import edu.princeton.cs.algs4.Transaction;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.List;
 
+/**
+ * 输出交易记录中金额最小的M条，用法: java PriorityQueue.TopM M tinyBatch.txt
+ *
+ * 由 TransactionLog 完成：内存映射文件，直接把每行解析为基本类型的列，只在金额列上维护大小为M的堆，
+ * 最后只为选中的M条创建 Transaction 对象。结果与原先 MaxPQ + delMax 的做法相同
+ * 其他格式的记录可以用 TopK.top(Path, ...) 按行解析
+ */
 public class TopM {
     public static void main(String[] args) throws Exception{
         int M = Integer.parseInt(args[0]);
 
-        MaxPQ<Transaction> maxpq = new MaxPQ<>(M+1);
-//        MinPQ<Transaction> minpq = new MinPQ<>(M+1);
-
-        String path = "G:" + File.separator + "ZAIZEN_JAVA" + File.separator + "data"
-                + File.separator + "algs4_jar" + File.separator + "algs4-data"
-                + File.separator + "tinyBatch.txt";
-        InputStream input = new FileInputStream(path);
-
-        //将标准输入流重定向到tinyT.txt文件
-        //API: static void setIn(InputStream in)
-        //     //Reassigns the "standard" input stream.
-        System.setIn(input);
-
-        while (StdIn.hasNextLine()){
-            maxpq.insert(new Transaction(StdIn.readLine()));
-            if (maxpq.size() > M){
-                maxpq.delMax();
-            }
-        }
-
-        Stack<Transaction> stack = new Stack<>();
-        while (!maxpq.isEmpty()){
-            stack.push(maxpq.delMax());
-        }
+        List<Transaction> top = TransactionLog.load(Paths.get(args[1])).smallest(M);
 
-        for (Transaction t:
-             stack) {
+        // 按金额从小到大输出
+        for (Transaction t : top) {
             StdOut.println(t);
         }
     }
@@ -0,0 +1,312 @@
+package PriorityQueue;
+
+import edu.princeton.cs.algs4.Date;
+import edu.princeton.cs.algs4.Transaction;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 交易记录文件的列式读取器，每行格式为 "姓名 月/日/年 金额"，例如 "Turing 6/17/1990 644.08"
+ *
+ * (1) 用 FileChannel.map 将文件映射到内存，直接在 MappedByteBuffer 上逐字节解析，不创建 String
+ * (2) 每行解析为几个基本类型的列：日期压缩为 yyyymmdd 的 int，金额为 double，姓名只记录它在文件中的位置和长度
+ * (3) 选出金额最小/最大的M行时只比较 amount 列，最后只为选中的M行创建 String、Date 和 Transaction 对象
+ *
+ * 单个 MappedByteBuffer 最大 2GB，大文件按行边界分成多段映射
+ */
+public class TransactionLog {
+    // 每段映射的最大字节数
+    private static final int MAX_SEGMENT = Integer.MAX_VALUE;
+
+    // 10^0 ~ 10^22 都能用double精确表示
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+            1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19,
+            1e20, 1e21, 1e22};
+
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    // 列
+    private int N = 0;
+    private int[] nameSegment = new int[1024];
+    private int[] namePos = new int[1024];
+    private int[] nameLen = new int[1024];
+    private int[] date = new int[1024];           // year * 10000 + month * 100 + day
+    private double[] amount = new double[1024];
+
+    private TransactionLog(){ }
+
+    public static TransactionLog load(Path path) throws IOException {
+        TransactionLog log = new TransactionLog();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long pos = 0;
+            while (pos < size){
+                long len = Math.min(MAX_SEGMENT, size - pos);
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+                log.segments.add(buf);
+                boolean last = pos + len == size;
+                int consumed = log.parse(buf, log.segments.size() - 1, last);
+                if (consumed == 0){
+                    throw new IllegalArgumentException("line longer than " + MAX_SEGMENT + " bytes at offset " + pos);
+                }
+                // 下一段从本段最后一个完整行之后开始
+                pos += consumed;
+            }
+        }
+        return log;
+    }
+
+    public int size(){
+        return N;
+    }
+
+    public double amount(int row){
+        return amount[row];
+    }
+
+    public String name(int row){
+        byte[] bytes = new byte[nameLen[row]];
+        MappedByteBuffer buf = segments.get(nameSegment[row]);
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buf.get(namePos[row] + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // 只在需要时才创建Transaction对象
+    public Transaction transaction(int row){
+        int d = date[row];
+        return new Transaction(name(row), new Date(d / 100 % 100, d % 100, d / 10000), amount[row]);
+    }
+
+    // 金额最小的M条，按金额从小到大
+    public List<Transaction> smallest(int M){
+        return materialize(select(M, true));
+    }
+
+    // 金额最大的M条，按金额从大到小
+    public List<Transaction> largest(int M){
+        return materialize(select(M, false));
+    }
+
+    private List<Transaction> materialize(int[] rows){
+        List<Transaction> list = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            list.add(transaction(row));
+        }
+        return list;
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 选择：在行号上维护大小为M的堆，只比较amount列
+     * 求最小的M个时用最大堆（堆顶为当前M个中最大的），新元素不小于堆顶时直接跳过；求最大的M个时反之
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    private int[] select(int M, boolean smallest){
+        if (M < 1) throw new IllegalArgumentException("M must be positive: " + M);
+        int[] pq = new int[Math.min(M, N) + 1];     // 行号，pq[0]不使用
+        int size = 0;
+        for (int row = 0; row < N; row++) {
+            if (size < pq.length - 1){
+                pq[++size] = row;
+                swim(pq, size, smallest);
+            }else if (smallest ? amount[row] < amount[pq[1]] : amount[row] > amount[pq[1]]){
+                pq[1] = row;
+                sink(pq, 1, size, smallest);
+            }
+        }
+
+        // 依次删除堆顶，从后往前填，得到从最好到最差的顺序
+        int[] rows = new int[size];
+        while (size > 0){
+            rows[size - 1] = pq[1];
+            pq[1] = pq[size--];
+            sink(pq, 1, size, smallest);
+        }
+        return rows;
+    }
+
+    // 堆中应当排在上面的元素：求最小的M个时为金额大的，求最大的M个时为金额小的
+    private boolean above(int a, int b, boolean smallest){
+        return smallest ? amount[a] > amount[b] : amount[a] < amount[b];
+    }
+
+    private void swim(int[] pq, int k, boolean smallest){
+        while (k > 1 && above(pq[k], pq[k/2], smallest)){
+            int t = pq[k];
+            pq[k] = pq[k/2];
+            pq[k/2] = t;
+            k = k/2;
+        }
+    }
+
+    private void sink(int[] pq, int k, int n, boolean smallest){
+        while (2*k <= n){
+            int j = 2*k;
+            if (j < n && above(pq[j+1], pq[j], smallest)){
+                j++;
+            }
+            if (!above(pq[j], pq[k], smallest)){
+                break;
+            }
+            int t = pq[k];
+            pq[k] = pq[j];
+            pq[j] = t;
+            k = j;
+        }
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 解析
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+
+    // 解析buf中所有完整的行，返回已消费的字节数；last为true时最后一行可以没有换行符
+    private int parse(MappedByteBuffer buf, int segment, boolean last){
+        int limit = buf.limit();
+        int lineStart = 0;
+        while (lineStart < limit){
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buf.get(lineEnd) != '\n'){
+                lineEnd++;
+            }
+            if (lineEnd == limit && !last){
+                // 本段末尾不完整的一行留给下一段
+                break;
+            }
+            parseLine(buf, segment, lineStart, lineEnd);
+            lineStart = lineEnd + 1;
+        }
+        return Math.min(lineStart, limit);
+    }
+
+    private static boolean isSpace(byte b){
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private void parseLine(MappedByteBuffer buf, int segment, int start, int end){
+        int i = start;
+        while (i < end && isSpace(buf.get(i))) i++;
+        if (i == end){
+            // 空行
+            return;
+        }
+
+        // 姓名
+        int nameStart = i;
+        while (i < end && !isSpace(buf.get(i))) i++;
+        int nameEnd = i;
+        while (i < end && isSpace(buf.get(i))) i++;
+
+        // 日期 月/日/年
+        int month = 0, day = 0, year = 0;
+        while (i < end && buf.get(i) != '/') month = month * 10 + digit(buf, i++, start);
+        i++;
+        while (i < end && buf.get(i) != '/') day = day * 10 + digit(buf, i++, start);
+        i++;
+        while (i < end && !isSpace(buf.get(i))) year = year * 10 + digit(buf, i++, start);
+        while (i < end && isSpace(buf.get(i))) i++;
+
+        // 金额：整数部分和小数部分合成一个long，再除以10的小数位数次幂
+        boolean negative = false;
+        if (i < end && buf.get(i) == '-'){
+            negative = true;
+            i++;
+        }
+        int amountStart = i;
+        long mantissa = 0;
+        int digits = 0, scale = -1;
+        while (i < end && !isSpace(buf.get(i))){
+            byte b = buf.get(i);
+            if (b == '.' && scale < 0){
+                scale = 0;
+            }else {
+                mantissa = mantissa * 10 + digit(buf, i, start);
+                digits++;
+                if (scale >= 0) scale++;
+            }
+            i++;
+        }
+        if (scale < 0) scale = 0;
+        if (digits == 0 || nameEnd == nameStart || year == 0){
+            throw new IllegalArgumentException("malformed transaction at row " + N);
+        }
+
+        double value;
+        if (isExact(mantissa, digits, scale)){
+            value = mantissa / POW10[scale];
+        }else {
+            // 位数过多时long会溢出，或者除法之前已经有一次舍入，退回到标准解析
+            byte[] bytes = new byte[i - amountStart];
+            for (int j = 0; j < bytes.length; j++) {
+                bytes[j] = buf.get(amountStart + j);
+            }
+            value = Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+        }
+
+        if (N == amount.length){
+            grow();
+        }
+        nameSegment[N] = segment;
+        namePos[N] = nameStart;
+        nameLen[N] = nameEnd - nameStart;
+        date[N] = year * 10000 + month * 100 + day;
+        amount[N] = negative ? -value : value;
+        N++;
+    }
+
+    // mantissa / 10^scale 能否得到与 Double.parseDouble 相同的结果：mantissa 不超过 2^53、10^scale 不超过 10^22 时
+    // 两者转换为double都没有误差，只有除法这一次舍入（正确舍入）；否则转换时先舍入一次，除法再舍入一次，结果可能差一个ulp
+    static boolean isExact(long mantissa, int digits, int scale){
+        return digits <= 18 && mantissa < (1L << 53) && scale < POW10.length;
+    }
+
+    private int digit(MappedByteBuffer buf, int i, int lineStart){
+        int d = buf.get(i) - '0';
+        if (d < 0 || d > 9){
+            throw new IllegalArgumentException("malformed transaction at row " + N + ", column " + (i - lineStart));
+        }
+        return d;
+    }
+
+    private void grow(){
+        int n = 2 * amount.length;
+        nameSegment = Arrays.copyOf(nameSegment, n);
+        namePos = Arrays.copyOf(namePos, n);
+        nameLen = Arrays.copyOf(nameLen, n);
+        date = Arrays.copyOf(date, n);
+        amount = Arrays.copyOf(amount, n);
+    }
+
+    // 比较金额的快速路径与 Double.parseDouble：17~18位有效数字的金额，直接相除会因为两次舍入而不同
+    public static void main(String[] args){
+        Random random = new Random(42);
+        int trials = 1000000, naiveDiff = 0, fastDiff = 0;
+        for (int t = 0; t < trials; t++) {
+            int digits = 17 + random.nextInt(2);
+            long mantissa = (long) Math.pow(10, digits - 1) + (long) (random.nextDouble() * 9 * Math.pow(10, digits - 1));
+            int scale = random.nextInt(digits);
+            String text = Long.toString(mantissa);
+            text = text.substring(0, digits - scale) + "." + text.substring(digits - scale);
+            double expected = Double.parseDouble(text);
+
+            if (mantissa / POW10[scale] != expected) naiveDiff++;
+            double fast = isExact(mantissa, digits, scale) ? mantissa / POW10[scale] : Double.parseDouble(text);
+            if (fast != expected) fastDiff++;
+        }
+        System.out.println("mantissa / 10^scale differs from parseDouble: " + naiveDiff + " / " + trials);
+        System.out.println("fast path differs from parseDouble:           " + fastDiff + " / " + trials);
+    }
+}
@@ -1,5 +1,17 @@
 package RBTree;
 
+import java.util.NoSuchElementException;
+
+/**
+ * 左倾红黑树（LLRB），与2-3树一一对应:
+ *
+ * (1) 红链接均为左链接，红结点与其父结点合起来表示2-3树中的一个3-结点
+ * (2) 没有任何一个结点同时和两条红链接相连
+ * (3) 完美黑色平衡：任意空链接到根结点的路径上的黑链接数量相同，故树高不超过 2lgN
+ *
+ * 插入时通过 左旋转、右旋转、颜色翻转 三种操作维持以上性质；
+ * 删除时在向下查找的过程中保证当前结点不是2-结点（moveRedLeft/moveRedRight），删除后向上回溯时再用balance恢复
+ */
 public class RBTree<Key extends Comparable<Key>, Value> {
     private static final boolean BLACK = false;
     private static final boolean RED = true;
@@ -12,14 +24,16 @@ public class RBTree<Key extends Comparable<Key>, Value> {
         private Key key;              // 键
         private Value val;            // 值
         private Node left, right;     // 指向子树的链接
-        private boolean color;        // 结点颜色
+        private boolean color;        // 结点颜色：指向该结点的链接的颜色
+        private int N;                // 以该结点为根的子树的结点总数
 
         // 结点构造函数
-        public Node(Key key, Value val){
+        public Node(Key key, Value val, int N){
             this.key = key;
             this.val = val;
             this.left = null;
             this.right = null;
+            this.N = N;
 
             // 默认颜色为红色，因为在2-3树中新加入结点总要去和某结点融合，故将新结点默认颜色设为红色
             this.color = RED;
@@ -35,5 +49,451 @@ public class RBTree<Key extends Comparable<Key>, Value> {
         return x.color;
     }
 
+    public int size(){
+        return size(root);
+    }
+    private int size(Node x){
+        if (x == null){
+            return 0;
+        }
+        return x.N;
+    }
+
+    public boolean isEmpty(){
+        return root == null;
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 旋转与颜色翻转
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+
+    // 左旋转：将右倾的红链接转为左倾
+    //     h                              x
+    //   /  \                           /   \
+    //  T1   x       左旋转 (h)         h    T3
+    //      / \    - - - - - - - ->   / \
+    //     T2  T3                    T1  T2
+    private Node rotateLeft(Node h){
+        Node x = h.right;
+        h.right = x.left;
+        x.left = h;
+        x.color = h.color;
+        h.color = RED;
+        x.N = h.N;
+        h.N = 1 + size(h.left) + size(h.right);
+        return x;
+    }
+
+    // 右旋转：将左倾的红链接转为右倾
+    private Node rotateRight(Node h){
+        Node x = h.left;
+        h.left = x.right;
+        x.right = h;
+        x.color = h.color;
+        h.color = RED;
+        x.N = h.N;
+        h.N = 1 + size(h.left) + size(h.right);
+        return x;
+    }
+
+    // 颜色翻转：对应2-3树中临时4-结点的分解（插入），或者与兄弟结点合并（删除）
+    private void flipColors(Node h){
+        h.color = !h.color;
+        h.left.color = !h.left.color;
+        h.right.color = !h.right.color;
+    }
+
+    // 假设h为红色，h.left和h.left.left都是黑色，将h.left或者h.left的子结点之一变红
+    private Node moveRedLeft(Node h){
+        flipColors(h);
+        if (isRed(h.right.left)){
+            h.right = rotateRight(h.right);
+            h = rotateLeft(h);
+            flipColors(h);
+        }
+        return h;
+    }
+
+    // 假设h为红色，h.right和h.right.left都是黑色，将h.right或者h.right的子结点之一变红
+    private Node moveRedRight(Node h){
+        flipColors(h);
+        if (isRed(h.left.left)){
+            h = rotateRight(h);
+            flipColors(h);
+        }
+        return h;
+    }
 
+    // 恢复红黑树的性质，与put中回溯时的三步相同
+    private Node balance(Node h){
+        if (isRed(h.right) && !isRed(h.left)){
+            h = rotateLeft(h);
+        }
+        if (isRed(h.left) && isRed(h.left.left)){
+            h = rotateRight(h);
+        }
+        if (isRed(h.left) && isRed(h.right)){
+            flipColors(h);
+        }
+        h.N = 1 + size(h.left) + size(h.right);
+        return h;
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 有序符号表API
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+
+    // ***1. 查找Key=key元素的值，不存在时返回null
+    public Value get(Key key){
+        if (key == null) throw new IllegalArgumentException("calls get() with a null key");
+        Node x = root;
+        while (x != null){
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0){
+                x = x.left;
+            }else if (cmp > 0){
+                x = x.right;
+            }else {
+                return x.val;
+            }
+        }
+        return null;
+    }
+
+    public boolean contains(Key key){
+        return get(key) != null;
+    }
+
+    // ***2. 插入键值对key-val。如果已存在，仅更新值
+    public void put(Key key, Value val){
+        if (key == null) throw new IllegalArgumentException("calls put() with a null key");
+        root = put(root, key, val);
+        // 根结点总是黑色
+        root.color = BLACK;
+    }
+    private Node put(Node h, Key key, Value val){
+        if (h == null){
+            // 标准的插入操作，和父结点用红链接相连
+            return new Node(key, val, 1);
+        }
+
+        int cmp = key.compareTo(h.key);
+        if (cmp < 0){
+            h.left = put(h.left, key, val);
+        }else if (cmp > 0){
+            h.right = put(h.right, key, val);
+        }else {
+            h.val = val;
+        }
+
+        // 回溯时沿着插入点到根结点的路径向上修复
+        // 1. 右子结点是红色而左子结点是黑色：左旋转
+        if (isRed(h.right) && !isRed(h.left)){
+            h = rotateLeft(h);
+        }
+        // 2. 左子结点是红色且它的左子结点也是红色：右旋转
+        if (isRed(h.left) && isRed(h.left.left)){
+            h = rotateRight(h);
+        }
+        // 3. 左右子结点均为红色：颜色翻转
+        if (isRed(h.left) && isRed(h.right)){
+            flipColors(h);
+        }
+        h.N = 1 + size(h.left) + size(h.right);
+        return h;
+    }
+
+    // ***3. 删除最小元素
+    public void deleteMin(){
+        if (isEmpty()) throw new NoSuchElementException("RBTree underflow");
+
+        // 根结点的两个子结点都是黑色时，将根结点设为红色，保证向下的过程中当前结点不是2-结点
+        if (!isRed(root.left) && !isRed(root.right)){
+            root.color = RED;
+        }
+        root = deleteMin(root);
+        if (!isEmpty()){
+            root.color = BLACK;
+        }
+    }
+    private Node deleteMin(Node h){
+        if (h.left == null){
+            return null;
+        }
+        if (!isRed(h.left) && !isRed(h.left.left)){
+            h = moveRedLeft(h);
+        }
+        h.left = deleteMin(h.left);
+        return balance(h);
+    }
+
+    // 4. 删除最大元素
+    public void deleteMax(){
+        if (isEmpty()) throw new NoSuchElementException("RBTree underflow");
+
+        if (!isRed(root.left) && !isRed(root.right)){
+            root.color = RED;
+        }
+        root = deleteMax(root);
+        if (!isEmpty()){
+            root.color = BLACK;
+        }
+    }
+    private Node deleteMax(Node h){
+        // 红链接是左倾的，先将其转为右倾，才能从右侧删除
+        if (isRed(h.left)){
+            h = rotateRight(h);
+        }
+        if (h.right == null){
+            return null;
+        }
+        if (!isRed(h.right) && !isRed(h.right.left)){
+            h = moveRedRight(h);
+        }
+        h.right = deleteMax(h.right);
+        return balance(h);
+    }
+
+    // ***5. 删除键为key的元素
+    public void delete(Key key){
+        if (key == null) throw new IllegalArgumentException("calls delete() with a null key");
+        if (!contains(key)){
+            return;
+        }
+
+        if (!isRed(root.left) && !isRed(root.right)){
+            root.color = RED;
+        }
+        root = delete(root, key);
+        if (!isEmpty()){
+            root.color = BLACK;
+        }
+    }
+    private Node delete(Node h, Key key){
+        if (key.compareTo(h.key) < 0){
+            if (!isRed(h.left) && !isRed(h.left.left)){
+                h = moveRedLeft(h);
+            }
+            h.left = delete(h.left, key);
+        }else {
+            if (isRed(h.left)){
+                h = rotateRight(h);
+            }
+            // 待删除结点在树底
+            if (key.compareTo(h.key) == 0 && (h.right == null)){
+                return null;
+            }
+            if (!isRed(h.right) && !isRed(h.right.left)){
+                h = moveRedRight(h);
+            }
+            if (key.compareTo(h.key) == 0){
+                // 用右子树的最小结点替换h，再删除右子树的最小结点
+                Node x = min(h.right);
+                h.key = x.key;
+                h.val = x.val;
+                h.right = deleteMin(h.right);
+            }else {
+                h.right = delete(h.right, key);
+            }
+        }
+        return balance(h);
+    }
+
+    // ***6. 返回最小键
+    public Key min(){
+        if (isEmpty()) throw new NoSuchElementException("calls min() with empty RBTree");
+        return min(root).key;
+    }
+    private Node min(Node x){
+        while (x.left != null){
+            x = x.left;
+        }
+        return x;
+    }
+
+    // 7. 返回最大键
+    public Key max(){
+        if (isEmpty()) throw new NoSuchElementException("calls max() with empty RBTree");
+        Node x = root;
+        while (x.right != null){
+            x = x.right;
+        }
+        return x.key;
+    }
+
+    // ***8. 向下取整：小于等于key的最大键，不存在时返回null
+    public Key floor(Key key){
+        if (key == null) throw new IllegalArgumentException("calls floor() with a null key");
+        Node x = root;
+        Node best = null;
+        while (x != null){
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0){
+                x = x.left;
+            }else if (cmp > 0){
+                best = x;
+                x = x.right;
+            }else {
+                return x.key;
+            }
+        }
+        return best == null ? null : best.key;
+    }
+
+    // 9. 向上取整：大于等于key的最小键，不存在时返回null
+    public Key ceiling(Key key){
+        if (key == null) throw new IllegalArgumentException("calls ceiling() with a null key");
+        Node x = root;
+        Node best = null;
+        while (x != null){
+            int cmp = key.compareTo(x.key);
+            if (cmp > 0){
+                x = x.right;
+            }else if (cmp < 0){
+                best = x;
+                x = x.left;
+            }else {
+                return x.key;
+            }
+        }
+        return best == null ? null : best.key;
+    }
+
+    // ***10. 找到排名为k的键：即树中正好有k个小于它的键
+    public Key select(int k){
+        if (k < 0 || k >= size()) throw new IllegalArgumentException("argument to select() is invalid: " + k);
+        Node x = root;
+        while (x != null){
+            int t = size(x.left);
+            if (t > k){
+                x = x.left;
+            }else if (t < k){
+                k = k - t - 1;
+                x = x.right;
+            }else {
+                return x.key;
+            }
+        }
+        return null;
+    }
+
+    // ***11. 返回给定键的排名：树中小于key的键的数量
+    public int rank(Key key){
+        if (key == null) throw new IllegalArgumentException("calls rank() with a null key");
+        Node x = root;
+        int r = 0;
+        while (x != null){
+            int cmp = key.compareTo(x.key);
+            if (cmp < 0){
+                x = x.left;
+            }else if (cmp > 0){
+                r += size(x.left) + 1;
+                x = x.right;
+            }else {
+                return r + size(x.left);
+            }
+        }
+        return r;
+    }
+
+    // 树的高度（只有一个结点时为0）
+    public int height(){
+        return height(root);
+    }
+    private int height(Node x){
+        if (x == null){
+            return -1;
+        }
+        return 1 + Math.max(height(x.left), height(x.right));
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 性质检查
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    public boolean isRBTree(){
+        return isBST(root, null, null) && isSizeConsistent(root) && is23(root) && isBalanced();
+    }
+
+    // 中序有序
+    private boolean isBST(Node x, Key min, Key max){
+        if (x == null){
+            return true;
+        }
+        if (min != null && x.key.compareTo(min) <= 0) return false;
+        if (max != null && x.key.compareTo(max) >= 0) return false;
+        return isBST(x.left, min, x.key) && isBST(x.right, x.key, max);
+    }
+
+    private boolean isSizeConsistent(Node x){
+        if (x == null){
+            return true;
+        }
+        if (x.N != size(x.left) + size(x.right) + 1){
+            return false;
+        }
+        return isSizeConsistent(x.left) && isSizeConsistent(x.right);
+    }
+
+    // 没有右倾的红链接，也没有连续两条红链接
+    private boolean is23(Node x){
+        if (x == null){
+            return true;
+        }
+        if (isRed(x.right)) return false;
+        if (x != root && isRed(x) && isRed(x.left)) return false;
+        return is23(x.left) && is23(x.right);
+    }
+
+    // 从根结点到所有空链接的路径上黑链接的数量相同
+    private boolean isBalanced(){
+        int black = 0;
+        Node x = root;
+        while (x != null){
+            if (!isRed(x)){
+                black++;
+            }
+            x = x.left;
+        }
+        return isBalanced(root, black);
+    }
+    private boolean isBalanced(Node x, int black){
+        if (x == null){
+            return black == 0;
+        }
+        if (!isRed(x)){
+            black--;
+        }
+        return isBalanced(x.left, black) && isBalanced(x.right, black);
+    }
+
+
+    public static void main(String[] args){
+        RBTree<String, Integer> st = new RBTree<String, Integer>();
+        String[] keys = {"S", "E", "A", "R", "C", "H", "E", "X", "A", "M", "P", "L", "E"};
+        for (int i = 0; i < keys.length; i++) {
+            st.put(keys[i], i);
+        }
+
+        System.out.println("st.size() = " + st.size());
+        System.out.println("st.height() = " + st.height());
+        System.out.println("st.isRBTree() = " + st.isRBTree());
+        System.out.println("st.get(\"M\") = " + st.get("M"));
+        System.out.println("st.min() = " + st.min());
+        System.out.println("st.max() = " + st.max());
+        System.out.println("st.floor(\"G\") = " + st.floor("G"));
+        System.out.println("st.ceiling(\"Q\") = " + st.ceiling("Q"));
+        System.out.println("st.select(3) = " + st.select(3));
+        System.out.println("st.rank(\"R\") = " + st.rank("R"));
+
+        st.deleteMin();
+        st.deleteMax();
+        st.delete("P");
+        System.out.println("after delete: st.size() = " + st.size() + ", st.isRBTree() = " + st.isRBTree());
+    }
 }
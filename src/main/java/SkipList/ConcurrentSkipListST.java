@@ -0,0 +1,427 @@
+package SkipList;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicMarkableReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁跳表实现的线程安全有序符号表（Herlihy & Shavit, The Art of Multiprocessor Programming, 14.4）
+ *
+ * 每个结点在第0层到第topLevel层各有一个后继链接，每一层都是一个有序链表，高层是低层的"快速通道"，
+ * 结点的层数随机，第i层的结点数期望为 N/2^i，查找期望为 O(logN)
+ *
+ * (1) 链接用 AtomicMarkableReference 表示：引用加一个删除标记，二者一起用CAS修改
+ * (2) delete: 先从最高层到第1层依次标记结点的后继链接（逻辑删除），最后标记第0层，标记第0层的那个线程删除成功；
+ *     之后的find在经过被标记的结点时用CAS把它从链表中摘除（物理删除）
+ * (3) put: 先在第0层用CAS链接新结点（此时键已经存在于表中），再逐层链接上层，CAS失败时重新find
+ * (4) 读操作只读链接、跳过被标记的结点，不做CAS，不会被阻塞：
+ *     get/contains/ceiling/min/范围迭代 只走一遍，是无等待（wait-free）的；
+ *     floor/max 找到的结点在返回前被删除（已被标记）时要从头重试，是无锁（lock-free）的，
+ *     持续有并发删除时可能重试多次
+ *
+ * 键已存在时put直接修改结点的值（volatile）。size()与范围迭代是弱一致的：反映遍历过程中某些时刻的状态
+ */
+public class ConcurrentSkipListST<Key extends Comparable<Key>, Value> {
+    private static final int MAX_LEVEL = 32;
+
+    private final Node head = new Node(null, null, MAX_LEVEL - 1);    // 哨兵，键视为负无穷
+    private final LongAdder size = new LongAdder();
+
+    private class Node{
+        private final Key key;
+        private volatile Value val;
+        private final AtomicMarkableReference<Node>[] next;    // 各层的后继，null表示链表结尾
+        private final int topLevel;
+
+        @SuppressWarnings("unchecked")
+        Node(Key key, Value val, int topLevel){
+            this.key = key;
+            this.val = val;
+            this.topLevel = topLevel;
+            this.next = (AtomicMarkableReference<Node>[]) new AtomicMarkableReference[topLevel + 1];
+            for (int i = 0; i <= topLevel; i++) {
+                next[i] = new AtomicMarkableReference<>(null, false);
+            }
+        }
+    }
+
+    // 随机层数：第i层的概率为 1/2^(i+1)
+    private static int randomLevel(){
+        int level = Integer.numberOfTrailingZeros(ThreadLocalRandom.current().nextInt() | (1 << (MAX_LEVEL - 1)));
+        return Math.min(level, MAX_LEVEL - 1);
+    }
+
+    // 弱一致的元素个数
+    public int size(){
+        return (int) Math.max(0, size.sum());
+    }
+
+    public boolean isEmpty(){
+        return firstNode() == null;
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * find: 每一层找到最后一个小于key的结点preds[i]和它的后继succs[i]，沿途摘除被标记的结点
+     * 摘除的CAS失败说明pred本身被修改了（被标记或插入了新结点），从头开始重新查找
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    private boolean find(Key key, Node[] preds, Node[] succs){
+        boolean[] marked = {false};
+        retry:
+        while (true){
+            Node pred = head, curr = null;
+            for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+                curr = pred.next[level].getReference();
+                while (curr != null){
+                    Node succ = curr.next[level].get(marked);
+                    while (marked[0]){
+                        if (!pred.next[level].compareAndSet(curr, succ, false, false)){
+                            continue retry;
+                        }
+                        curr = succ;
+                        if (curr == null){
+                            break;
+                        }
+                        succ = curr.next[level].get(marked);
+                    }
+                    if (curr == null || curr.key.compareTo(key) >= 0){
+                        break;
+                    }
+                    pred = curr;
+                    curr = succ;
+                }
+                preds[level] = pred;
+                succs[level] = curr;
+            }
+            return curr != null && curr.key.compareTo(key) == 0;
+        }
+    }
+
+    // 只读的查找：返回第0层第一个不小于key的未标记结点，并在pred[0]中返回它的前驱（可能为head）
+    private Node seek(Key key, Node[] pred){
+        boolean[] marked = {false};
+        Node p = head, curr = null;
+        for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+            curr = p.next[level].getReference();
+            while (curr != null){
+                Node succ = curr.next[level].get(marked);
+                while (marked[0]){
+                    curr = succ;
+                    if (curr == null){
+                        break;
+                    }
+                    succ = curr.next[level].get(marked);
+                }
+                if (curr == null || curr.key.compareTo(key) >= 0){
+                    break;
+                }
+                p = curr;
+                curr = succ;
+            }
+        }
+        if (pred != null){
+            pred[0] = p;
+        }
+        return curr;
+    }
+
+    private boolean isMarked(Node x){
+        return x.next[0].isMarked();
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 有序符号表API
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    // ***1. 查找Key=key元素的值，不存在时返回null
+    public Value get(Key key){
+        if (key == null) throw new IllegalArgumentException("calls get() with a null key");
+        Node x = seek(key, null);
+        if (x == null || x.key.compareTo(key) != 0){
+            return null;
+        }
+        return x.val;
+    }
+
+    public boolean contains(Key key){
+        if (key == null) throw new IllegalArgumentException("calls contains() with a null key");
+        Node x = seek(key, null);
+        return x != null && x.key.compareTo(key) == 0;
+    }
+
+    // ***2. 插入键值对key-val。如果已存在，仅更新值
+    @SuppressWarnings("unchecked")
+    public void put(Key key, Value val){
+        if (key == null) throw new IllegalArgumentException("calls put() with a null key");
+        int topLevel = randomLevel();
+        Node[] preds = (Node[]) new ConcurrentSkipListST.Node[MAX_LEVEL];
+        Node[] succs = (Node[]) new ConcurrentSkipListST.Node[MAX_LEVEL];
+        while (true){
+            if (find(key, preds, succs)){
+                // 元素值相等，仅更新树中已存在元素的值
+                succs[0].val = val;
+                return;
+            }
+
+            Node x = new Node(key, val, topLevel);
+            for (int level = 0; level <= topLevel; level++) {
+                x.next[level].set(succs[level], false);
+            }
+            // 链接第0层：成功后键就存在于表中了
+            if (!preds[0].next[0].compareAndSet(succs[0], x, false, false)){
+                continue;
+            }
+            size.increment();
+
+            // 逐层链接上层
+            for (int level = 1; level <= topLevel; level++) {
+                while (true){
+                    Node succ = succs[level];
+                    // 重新find后后继可能变了，先修正新结点自己的链接；新结点已被并发删除（被标记）时不再链接
+                    Node old = x.next[level].getReference();
+                    if (old != succ && !x.next[level].compareAndSet(old, succ, false, false)){
+                        return;
+                    }
+                    if (x.next[level].isMarked()){
+                        return;
+                    }
+                    if (preds[level].next[level].compareAndSet(succ, x, false, false)){
+                        break;
+                    }
+                    find(key, preds, succs);
+                }
+            }
+            return;
+        }
+    }
+
+    // ***11. 删除键为key的元素
+    @SuppressWarnings("unchecked")
+    public void delete(Key key){
+        if (key == null) throw new IllegalArgumentException("calls delete() with a null key");
+        Node[] preds = (Node[]) new ConcurrentSkipListST.Node[MAX_LEVEL];
+        Node[] succs = (Node[]) new ConcurrentSkipListST.Node[MAX_LEVEL];
+        if (!find(key, preds, succs)){
+            return;
+        }
+        Node x = succs[0];
+        boolean[] marked = {false};
+
+        // 从最高层到第1层标记后继链接
+        for (int level = x.topLevel; level >= 1; level--) {
+            Node succ = x.next[level].get(marked);
+            while (!marked[0]){
+                x.next[level].compareAndSet(succ, succ, false, true);
+                succ = x.next[level].get(marked);
+            }
+        }
+
+        // 标记第0层：成功的线程完成删除，失败且已被标记说明被其他线程删除了
+        Node succ = x.next[0].get(marked);
+        while (true){
+            boolean iMarkedIt = x.next[0].compareAndSet(succ, succ, false, true);
+            succ = x.next[0].get(marked);
+            if (iMarkedIt){
+                size.decrement();
+                // 物理摘除
+                find(key, preds, succs);
+                return;
+            }else if (marked[0]){
+                return;
+            }
+        }
+    }
+
+    private Node firstNode(){
+        boolean[] marked = {false};
+        Node x = head.next[0].getReference();
+        while (x != null){
+            Node succ = x.next[0].get(marked);
+            if (!marked[0]){
+                return x;
+            }
+            x = succ;
+        }
+        return null;
+    }
+
+    // ***3. 返回最小键
+    public Key min(){
+        Node x = firstNode();
+        return x == null ? null : x.key;
+    }
+
+    // 4. 返回最大键：从最高层开始尽量向右走，最后在第0层走到结尾
+    public Key max(){
+        boolean[] marked = {false};
+        while (true){
+            Node p = head;
+            for (int level = MAX_LEVEL - 1; level >= 0; level--) {
+                Node curr = p.next[level].getReference();
+                while (curr != null){
+                    Node succ = curr.next[level].get(marked);
+                    if (!marked[0]){
+                        p = curr;
+                    }
+                    curr = succ;
+                }
+            }
+            if (p == head){
+                return null;
+            }
+            // 走到的结点在此期间被删除时重试
+            if (!isMarked(p)){
+                return p.key;
+            }
+        }
+    }
+
+    // ***5. 向下取整：小于等于key的最大键
+    @SuppressWarnings("unchecked")
+    public Key floor(Key key){
+        if (key == null) throw new IllegalArgumentException("calls floor() with a null key");
+        Node[] pred = (Node[]) new ConcurrentSkipListST.Node[1];
+        while (true){
+            Node x = seek(key, pred);
+            if (x != null && x.key.compareTo(key) == 0){
+                return x.key;
+            }
+            if (pred[0] == head){
+                return null;
+            }
+            if (!isMarked(pred[0])){
+                return pred[0].key;
+            }
+        }
+    }
+
+    // 6. 向上取整：大于等于key的最小键
+    public Key ceiling(Key key){
+        if (key == null) throw new IllegalArgumentException("calls ceiling() with a null key");
+        Node x = seek(key, null);
+        return x == null ? null : x.key;
+    }
+
+    // ***9. 删除最小元素
+    public void deleteMin(){
+        Key min = min();
+        if (min != null){
+            delete(min);
+        }
+    }
+
+    // 10. 删除最大元素
+    public void deleteMax(){
+        Key max = max();
+        if (max != null){
+            delete(max);
+        }
+    }
+
+    /**
+     * -----------------------------------------------------------------------------------------------------------------
+     * 范围迭代：找到第一个不小于lo的结点后沿第0层向后走，跳过被标记的结点，弱一致
+     * -----------------------------------------------------------------------------------------------------------------
+     * */
+    public Iterable<Key> keys(){
+        Key lo = min(), hi = max();
+        if (lo == null || hi == null){
+            return Collections.emptyList();
+        }
+        return keys(lo, hi);
+    }
+
+    // [lo, hi]之间的键，从小到大
+    public Iterable<Key> keys(Key lo, Key hi){
+        checkRange(lo, hi);
+        return () -> new RangeIterator<Key>(lo, hi, false);
+    }
+
+    // [lo, hi]之间的键值对，从小到大；每个键值对是迭代到该结点时的值
+    public Iterable<Map.Entry<Key, Value>> entries(Key lo, Key hi){
+        checkRange(lo, hi);
+        return () -> new RangeIterator<Map.Entry<Key, Value>>(lo, hi, true);
+    }
+
+    private void checkRange(Key lo, Key hi){
+        if (lo == null) throw new IllegalArgumentException("first argument to keys() is null");
+        if (hi == null) throw new IllegalArgumentException("second argument to keys() is null");
+    }
+
+    private class RangeIterator<T> implements Iterator<T> {
+        private final Key hi;
+        private final boolean entries;
+        private Node next;
+
+        RangeIterator(Key lo, Key hi, boolean entries){
+            this.hi = hi;
+            this.entries = entries;
+            next = bound(seek(lo, null));
+        }
+
+        // x超出范围时返回null
+        private Node bound(Node x){
+            return x == null || x.key.compareTo(hi) > 0 ? null : x;
+        }
+
+        @Override
+        public boolean hasNext(){
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next(){
+            if (next == null) throw new NoSuchElementException();
+            Node x = next;
+            Value val = x.val;
+
+            boolean[] marked = {false};
+            Node succ = x.next[0].getReference();
+            while (succ != null){
+                Node after = succ.next[0].get(marked);
+                if (!marked[0]){
+                    break;
+                }
+                succ = after;
+            }
+            next = bound(succ);
+            return entries ? (T) new AbstractMap.SimpleImmutableEntry<>(x.key, val) : (T) x.key;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final ConcurrentSkipListST<Integer, Integer> st = new ConcurrentSkipListST<>();
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            final int base = t;
+            writers[t] = new Thread(() -> {
+                for (int i = base; i < 100000; i += 4) {
+                    st.put(i, i);
+                    if (i % 3 == 0){
+                        st.delete(i);
+                    }
+                }
+            });
+            writers[t].start();
+        }
+        for (Thread w : writers) {
+            w.join();
+        }
+
+        System.out.println("st.size() = " + st.size());
+        System.out.println("st.min() = " + st.min() + ", st.max() = " + st.max());
+        System.out.println("st.floor(3) = " + st.floor(3) + ", st.ceiling(3) = " + st.ceiling(3));
+        for (Map.Entry<Integer, Integer> e : st.entries(10, 20)) {
+            System.out.print(e.getKey() + "=" + e.getValue() + " ");
+        }
+        System.out.println();
+    }
+}
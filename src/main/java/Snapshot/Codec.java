@@ -0,0 +1,17 @@
+package Snapshot;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 键或值的二进制编码：写快照时编码到输出流，恢复时直接从映射的 ByteBuffer 中解码
+ *
+ * decode 必须恰好读出 encode 写入的字节数，缓冲区的 position 停在下一个字段的开头。
+ * 常用类型的实现见 Codecs
+ */
+public interface Codec<T> {
+    void encode(T value, DataOutput out) throws IOException;
+
+    T decode(ByteBuffer in);
+}
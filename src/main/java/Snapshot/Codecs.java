@@ -0,0 +1,70 @@
+package Snapshot;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 常用类型的编码，全部为大端序，与 DataOutput 和 ByteBuffer 的默认字节序一致
+ */
+public final class Codecs {
+    private Codecs(){
+    }
+
+    // 4字节
+    public static final Codec<Integer> INT = new Codec<Integer>() {
+        @Override
+        public void encode(Integer value, DataOutput out) throws IOException{
+            out.writeInt(value);
+        }
+
+        @Override
+        public Integer decode(ByteBuffer in){
+            return in.getInt();
+        }
+    };
+
+    // 8字节
+    public static final Codec<Long> LONG = new Codec<Long>() {
+        @Override
+        public void encode(Long value, DataOutput out) throws IOException{
+            out.writeLong(value);
+        }
+
+        @Override
+        public Long decode(ByteBuffer in){
+            return in.getLong();
+        }
+    };
+
+    // 4字节的长度 + UTF-8 字节（不用 writeUTF，它限制长度不超过65535且使用修改过的UTF-8）。
+    // 损坏的长度按数据不完整处理，抛出 BufferUnderflowException，由调用者转换为 IOException
+    public static final Codec<String> STRING = new Codec<String>() {
+        @Override
+        public void encode(String value, DataOutput out) throws IOException{
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        @Override
+        public String decode(ByteBuffer in){
+            int n = in.getInt();
+            if (n < 0 || n > in.remaining()){
+                throw new BufferUnderflowException();
+            }
+            String s;
+            if (in.hasArray()){
+                s = new String(in.array(), in.arrayOffset() + in.position(), n, StandardCharsets.UTF_8);
+                in.position(in.position() + n);
+            }else {
+                byte[] bytes = new byte[n];
+                in.get(bytes);
+                s = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return s;
+        }
+    };
+}
@@ -0,0 +1,105 @@
+package Snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 树快照的文件格式（大端序）：
+ *
+ *   magic(4) "DSSN" | version(1) | type(1) | size(4) | 结点...
+ *
+ * 结点按前序排列，每个结点为 flags(1) | key | val | 树特有的字段（BST: N(4)，AVLTree: height(1) N(4)），
+ * flags 的 HAS_LEFT/HAS_RIGHT 表示是否有左、右孩子。恢复时按前序依次读出结点并挂到栈顶结点下面，
+ * 树的形状、height 和 N 都照原样恢复，不需要重新平衡；恢复后再用 O(n) 的一遍检查核对每个结点的 N、height、
+ * 平衡因子以及键严格递增，写错或手工构造的快照按损坏的文件拒绝。
+ * 哈希表的检查点（TYPE_HASH）没有形状，size之后只是 key | val 依次排列；
+ * LSM 的清单（TYPE_MANIFEST）中 size 为层数，之后是每层的文件编号（见 LSM.LSMTree）
+ *
+ * 写入时先写到同目录下固定名字的临时文件（目标文件名 + ".tmp"），fsync 后再原子地重命名为目标文件，
+ * 最后 fsync 所在目录，让重命名本身也落盘；write 返回之后断电，恢复时看到的一定是新快照。
+ * 中途崩溃不会留下半个快照，留下的临时文件在下一次 write 时被覆盖。
+ * 读取时整个文件映射到内存（FileChannel.map），结点直接从页缓存中解码，不经过额外的用户态拷贝。
+ * 结点的编码可能跨越任意位置，无法像 TransactionLog 那样按行分段映射，所以单个快照文件不能超过 2GB
+ */
+public final class SnapshotFile {
+    public static final byte TYPE_BST = 1;
+    public static final byte TYPE_AVL = 2;
+    public static final byte TYPE_HASH = 3;
+    public static final byte TYPE_MANIFEST = 4;
+
+    public static final byte HAS_LEFT = 1;
+    public static final byte HAS_RIGHT = 2;
+
+    private static final int MAGIC = 0x4453534E;   // "DSSN"
+    private static final byte VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private SnapshotFile(){
+    }
+
+    // 写出结点部分，文件头由 write 负责
+    public interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    public static void write(Path file, byte type, int size, Body body) throws IOException{
+        Path dir = file.toAbsolutePath().getParent();
+        Path tmp = dir.resolve(file.getFileName() + ".tmp");
+        try {
+            try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeByte(type);
+                out.writeInt(size);
+                body.write(out);
+                out.flush();
+                fos.getChannel().force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }finally {
+            Files.deleteIfExists(tmp);
+        }
+        syncDirectory(dir);
+    }
+
+    // fsync目录：文件的创建、重命名记录在目录中，不fsync目录的话断电后可能看不到
+    public static void syncDirectory(Path dir) throws IOException{
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        }
+    }
+
+    // 映射整个文件并检查文件头，返回的缓冲区停在size字段处
+    public static ByteBuffer open(Path file, byte type) throws IOException{
+        ByteBuffer in;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = ch.size();
+            if (length > Integer.MAX_VALUE){
+                throw new IOException("snapshot larger than 2GB is not supported: " + file);
+            }
+            // 映射在通道关闭后仍然有效
+            in = ch.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+        if (in.remaining() < 10 || in.getInt() != MAGIC){
+            throw new IOException("not a snapshot file: " + file);
+        }
+        byte version = in.get();
+        if (version != VERSION){
+            throw new IOException("unsupported snapshot version " + version + ": " + file);
+        }
+        byte t = in.get();
+        if (t != type){
+            throw new IOException("snapshot type " + t + " does not match expected type " + type + ": " + file);
+        }
+        return in;
+    }
+}